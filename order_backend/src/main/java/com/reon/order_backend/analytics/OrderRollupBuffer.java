@@ -0,0 +1,140 @@
+package com.reon.order_backend.analytics;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.OrderRollup;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+collects the rollup increments of incoming order events in memory and writes them periodically as one unordered
+bulk of $inc upserts, one per touched bucket, instead of three writes per event.
+a failed flush puts its increments back for the next one. redelivered events are not counted again, the analytics
+consumer passes every event through the deduplicator before it reaches the buffer. what is lost is an increment
+still buffered when the node crashes: its dedup marker is written and its offset committed already, so the event
+is neither redelivered nor counted. at most one flush-interval of events is lost that way, the rollups are
+operational numbers, not ledgers.
+ */
+@Component
+@Slf4j
+public class OrderRollupBuffer {
+    private final MongoTemplate mongoTemplate;
+    private final Map<OrderRollup.Granularity, Duration> retention = new EnumMap<>(OrderRollup.Granularity.class);
+    private Map<String, Bucket> pending = new HashMap<>();
+
+    private static final class Bucket {
+        private final OrderRollup.Granularity granularity;
+        private final LocalDateTime bucketStart;
+        private final Map<String, Long> increments = new HashMap<>();
+
+        private Bucket(OrderRollup.Granularity granularity, LocalDateTime bucketStart) {
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+        }
+
+        private void add(String field, long delta) {
+            increments.merge(field, delta, Long::sum);
+        }
+    }
+
+    public OrderRollupBuffer(MongoTemplate mongoTemplate,
+                             @Value("${analytics.rollup.retention.minute}") Duration minuteRetention,
+                             @Value("${analytics.rollup.retention.hour}") Duration hourRetention) {
+        this.mongoTemplate = mongoTemplate;
+        retention.put(OrderRollup.Granularity.MINUTE, minuteRetention);
+        retention.put(OrderRollup.Granularity.HOUR, hourRetention);
+    }
+
+    public synchronized void recordPlaced(OrderEventDTO event) {
+        long amount = event.getAmount() != null ? Order.toMinorUnits(event.getAmount()) : 0L;
+        for (Bucket bucket : buckets(event)) {
+            bucket.add("placed", 1);
+            bucket.add("revenueMinor", amount);
+            bucket.add("statusCounts." + event.getStatus().name(), 1);
+        }
+    }
+
+    public synchronized void recordStatus(OrderEventDTO event) {
+        for (Bucket bucket : buckets(event)) {
+            bucket.add("statusCounts." + event.getStatus().name(), 1);
+            if (event.getPreviousStatus() != null) {
+                bucket.add("transitions." + OrderRollup.transitionKey(event.getPreviousStatus(), event.getStatus()), 1);
+            }
+            if (event.getStatus() == Order.Status.CANCELLED && event.getAmount() != null) {
+                bucket.add("cancelledRevenueMinor", Order.toMinorUnits(event.getAmount()));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollup.flush-interval}")
+    public void flush() {
+        Map<String, Bucket> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OrderRollup.class);
+        batch.forEach((id, bucket) -> {
+            Update update = new Update()
+                    .setOnInsert("granularity", bucket.granularity)
+                    .setOnInsert("bucketStart", bucket.bucketStart);
+            Duration keep = retention.get(bucket.granularity);
+            if (keep != null) {
+                update.setOnInsert("expireAt", bucket.bucketStart.plus(keep));
+            }
+            bucket.increments.forEach(update::inc);
+            bulk.upsert(new Query(Criteria.where("_id").is(id)), update);
+        });
+        try {
+            bulk.execute();
+            log.debug("Order Rollup Buffer :: Flushed {} rollup buckets", batch.size());
+        } catch (RuntimeException e) {
+            log.error("Order Rollup Buffer :: Flush of {} buckets failed, retrying with the next flush: {}",
+                    batch.size(), e.getMessage());
+            requeue(batch);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private synchronized void requeue(Map<String, Bucket> batch) {
+        batch.forEach((id, failed) -> {
+            Bucket bucket = pending.computeIfAbsent(id, key -> new Bucket(failed.granularity, failed.bucketStart));
+            failed.increments.forEach(bucket::add);
+        });
+    }
+
+    private Bucket[] buckets(OrderEventDTO event) {
+        LocalDateTime time = event.getEventCreationTime() != null ? event.getEventCreationTime() : LocalDateTime.now();
+        OrderRollup.Granularity[] granularities = OrderRollup.Granularity.values();
+        Bucket[] buckets = new Bucket[granularities.length];
+        for (int i = 0; i < granularities.length; i++) {
+            OrderRollup.Granularity granularity = granularities[i];
+            LocalDateTime bucketStart = granularity.bucketOf(time);
+            buckets[i] = pending.computeIfAbsent(OrderRollup.idOf(granularity, bucketStart),
+                    id -> new Bucket(granularity, bucketStart));
+        }
+        return buckets;
+    }
+}
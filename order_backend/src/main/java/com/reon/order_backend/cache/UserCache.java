@@ -0,0 +1,39 @@
+package com.reon.order_backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reon.order_backend.document.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/*
+bounded, ttl based cache of authenticated users keyed by email.
+every authenticated request resolves its principal through this cache instead of hitting mongo.
+ */
+@Component
+@Slf4j
+public class UserCache {
+    private final Cache<String, User> users;
+
+    public UserCache(@Value("${cache.user.maximum-size}") long maximumSize,
+                     @Value("${cache.user.ttl}") Duration ttl) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public User get(String email, Function<String, User> loader) {
+        return users.get(email, loader);
+    }
+
+    // must be called whenever a user document is modified, otherwise stale data is served until ttl expires.
+    public void evict(String email) {
+        log.debug("User Cache :: Evicting user: {}", email);
+        users.invalidate(email);
+    }
+}
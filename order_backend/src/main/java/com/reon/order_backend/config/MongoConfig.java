@@ -0,0 +1,18 @@
+package com.reon.order_backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+/*
+order writes and their outbox rows are committed in one mongo transaction, so an event is recorded if and only if
+its order change is. transactions need mongo to run as a replica set, a single node set is enough for development.
+ */
+@Configuration
+public class MongoConfig {
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory mongoDatabaseFactory) {
+        return new MongoTransactionManager(mongoDatabaseFactory);
+    }
+}
@@ -1,6 +1,7 @@
 package com.reon.order_backend.config;
 
 import com.reon.order_backend.jwt.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -33,6 +34,8 @@ public class SecurityConfig {
                 .authorizeHttpRequests(
                         auth ->
                                 auth
+                                        // async dispatches (sse streams) were authorized on the original request
+                                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                         .requestMatchers("/api/v1/auth/**").permitAll()
                                         .requestMatchers("/api/v1/order/**").authenticated()
                                         .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
@@ -1,7 +1,15 @@
 package com.reon.order_backend.controller;
 
+import com.reon.order_backend.document.OrderRollup;
+import com.reon.order_backend.dto.analytics.OrderRollupResponse;
+import com.reon.order_backend.dto.page.CursorPage;
+import com.reon.order_backend.dto.replay.ReplayJobResponse;
+import com.reon.order_backend.dto.replay.ReplayRequest;
+import com.reon.order_backend.dto.user.OrderRefReport;
 import com.reon.order_backend.dto.user.UserResponse;
 import com.reon.order_backend.service.AdminService;
+import com.reon.order_backend.service.AnalyticsService;
+import com.reon.order_backend.service.FailedEventReplayService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -10,15 +18,21 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import jakarta.validation.Valid;
+
 import lombok.extern.slf4j.Slf4j;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 
 @RestController
 @RequestMapping(
@@ -33,9 +47,14 @@ import org.springframework.web.bind.annotation.*;
 public class AdminController {
 
     private final AdminService adminService;
+    private final FailedEventReplayService failedEventReplayService;
+    private final AnalyticsService analyticsService;
 
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, FailedEventReplayService failedEventReplayService,
+                           AnalyticsService analyticsService) {
         this.adminService = adminService;
+        this.failedEventReplayService = failedEventReplayService;
+        this.analyticsService = analyticsService;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -60,6 +79,28 @@ public class AdminController {
         return ResponseEntity.status(HttpStatus.OK).body(users);
     }
 
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(
+            name = "endpoint to fetch users with a cursor",
+            path = "/users/cursor"
+    )
+    @Operation(
+            summary = "Fetch users (cursor paginated)",
+            description = "Allows admin to page through all users, newest first. Pass nextCursor of a response to get the next slice, no total count is computed."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users fetched successfully",
+                    content = @Content(schema = @Schema(implementation = CursorPage.class)))
+    })
+    public ResponseEntity<CursorPage<UserResponse>> fetchUsersByCursor(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "50") int pageSize
+    ) {
+        log.info("Admin Controller :: Fetch users → cursor = {}, size = {}", cursor, pageSize);
+        CursorPage<UserResponse> users = adminService.fetchUsersByCursor(cursor, pageSize);
+        return ResponseEntity.status(HttpStatus.OK).body(users);
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping(
             name = "endpoint to fetch user via id",
@@ -97,4 +138,148 @@ public class AdminController {
         UserResponse user = adminService.fetchByEmail(email);
         return ResponseEntity.status(HttpStatus.OK).body(user);
     }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(
+            name = "endpoint to check the order references of users",
+            path = "/order-refs/check"
+    )
+    @Operation(
+            summary = "Check order references",
+            description = "Compares the order ids stored on every user with the orders they own. With repair=true, dangling ids are removed and missing ids added"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Check completed",
+                    content = @Content(schema = @Schema(implementation = OrderRefReport.class)))
+    })
+    public ResponseEntity<OrderRefReport> checkOrderRefs(
+            @RequestParam(name = "repair", defaultValue = "false") boolean repair
+    ) {
+        log.info("Admin Controller :: Check order references, repair = {}", repair);
+        OrderRefReport report = adminService.checkOrderRefs(repair);
+        return ResponseEntity.status(HttpStatus.OK).body(report);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(
+            name = "endpoint to replay failed events",
+            path = "/failed-events/replay"
+    )
+    @Operation(
+            summary = "Replay failed events",
+            description = "Starts a background job re-publishing failed events matching the topic, time range and error filters at a capped rate"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Replay job started",
+                    content = @Content(schema = @Schema(implementation = ReplayJobResponse.class)))
+    })
+    public ResponseEntity<ReplayJobResponse> startReplay(@Valid @RequestBody ReplayRequest request) {
+        log.info("Admin Controller :: Replay failed events: {}", request);
+        ReplayJobResponse job = failedEventReplayService.startReplay(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(
+            name = "endpoint to fetch a replay job",
+            path = "/failed-events/replay/{jobId}"
+    )
+    @Operation(
+            summary = "Fetch replay job",
+            description = "Returns the status and progress of a replay job"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Replay job fetched successfully",
+                    content = @Content(schema = @Schema(implementation = ReplayJobResponse.class)))
+    })
+    public ResponseEntity<ReplayJobResponse> fetchReplayJob(@PathVariable(name = "jobId") ObjectId jobId) {
+        log.info("Admin Controller :: Fetch replay job: {}", jobId);
+        ReplayJobResponse job = failedEventReplayService.fetchReplayJob(jobId);
+        return ResponseEntity.status(HttpStatus.OK).body(job);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(
+            name = "endpoint to resume a replay job",
+            path = "/failed-events/replay/{jobId}/resume"
+    )
+    @Operation(
+            summary = "Resume replay job",
+            description = "Resumes a paused, failed or interrupted replay job from its last checkpoint"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Replay job resumed",
+                    content = @Content(schema = @Schema(implementation = ReplayJobResponse.class)))
+    })
+    public ResponseEntity<ReplayJobResponse> resumeReplay(@PathVariable(name = "jobId") ObjectId jobId) {
+        log.info("Admin Controller :: Resume replay job: {}", jobId);
+        ReplayJobResponse job = failedEventReplayService.resumeReplay(jobId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(
+            name = "endpoint to pause a replay job",
+            path = "/failed-events/replay/{jobId}/pause"
+    )
+    @Operation(
+            summary = "Pause replay job",
+            description = "Stops a running replay job after its current batch"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Pause requested",
+                    content = @Content(schema = @Schema(implementation = ReplayJobResponse.class)))
+    })
+    public ResponseEntity<ReplayJobResponse> pauseReplay(@PathVariable(name = "jobId") ObjectId jobId) {
+        log.info("Admin Controller :: Pause replay job: {}", jobId);
+        ReplayJobResponse job = failedEventReplayService.pauseReplay(jobId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(
+            name = "endpoint to fetch order rollups",
+            path = "/analytics/rollups"
+    )
+    @Operation(
+            summary = "Fetch order rollups",
+            description = "Returns per minute, hour or day buckets of placed orders, status counts, transitions and revenue, oldest first. "
+                    + "Defaults to the last 60 minutes, 24 hours or 30 days."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rollups fetched successfully",
+                    content = @Content(schema = @Schema(implementation = OrderRollupResponse.class)))
+    })
+    public ResponseEntity<List<OrderRollupResponse>> fetchRollups(
+            @RequestParam(name = "granularity", defaultValue = "HOUR") OrderRollup.Granularity granularity,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        log.info("Admin Controller :: Fetch {} rollups → from = {}, to = {}", granularity, from, to);
+        List<OrderRollupResponse> rollups = analyticsService.fetchRollups(granularity, from, to);
+        return ResponseEntity.status(HttpStatus.OK).body(rollups);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(
+            name = "endpoint to fetch order totals",
+            path = "/analytics/totals"
+    )
+    @Operation(
+            summary = "Fetch order totals",
+            description = "Sums the rollups of the given granularity over the range into one set of counts and revenue"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Totals fetched successfully",
+                    content = @Content(schema = @Schema(implementation = OrderRollupResponse.class)))
+    })
+    public ResponseEntity<OrderRollupResponse> fetchTotals(
+            @RequestParam(name = "granularity", defaultValue = "HOUR") OrderRollup.Granularity granularity,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        log.info("Admin Controller :: Fetch {} totals → from = {}, to = {}", granularity, from, to);
+        OrderRollupResponse totals = analyticsService.fetchTotals(granularity, from, to);
+        return ResponseEntity.status(HttpStatus.OK).body(totals);
+    }
 }
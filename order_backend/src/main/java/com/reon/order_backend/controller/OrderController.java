@@ -1,12 +1,19 @@
 package com.reon.order_backend.controller;
 
 import com.reon.order_backend.document.User;
+import com.reon.order_backend.dto.order.BulkOrderRequest;
+import com.reon.order_backend.dto.order.BulkOrderResponse;
+import com.reon.order_backend.dto.order.BulkStatusRequest;
+import com.reon.order_backend.dto.order.BulkStatusResponse;
 import com.reon.order_backend.dto.order.OrderCreation;
 import com.reon.order_backend.dto.order.OrderResponse;
 import com.reon.order_backend.dto.order.OrderUpdateStatus;
-import com.reon.order_backend.exception.UserNotFoundException;
-import com.reon.order_backend.repository.UserRepository;
+import com.reon.order_backend.dto.page.CursorPage;
+import com.reon.order_backend.dto.summary.OrderSummaryResponse;
+import com.reon.order_backend.mapper.OrderMapper;
 import com.reon.order_backend.service.OrderService;
+import com.reon.order_backend.service.OrderSummaryService;
+import com.reon.order_backend.service.OrderTrackingService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -20,13 +27,19 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
 
 @RestController
 @RequestMapping(
@@ -41,11 +54,14 @@ import java.security.Principal;
 public class OrderController {
 
     private final OrderService orderService;
-    private final UserRepository userRepository;
+    private final OrderTrackingService orderTrackingService;
+    private final OrderSummaryService orderSummaryService;
 
-    public OrderController(OrderService orderService, UserRepository userRepository) {
+    public OrderController(OrderService orderService, OrderTrackingService orderTrackingService,
+                           OrderSummaryService orderSummaryService) {
         this.orderService = orderService;
-        this.userRepository = userRepository;
+        this.orderTrackingService = orderTrackingService;
+        this.orderSummaryService = orderSummaryService;
     }
 
     @PreAuthorize("hasRole('USER')")
@@ -59,62 +75,160 @@ public class OrderController {
                     content = @Content(schema = @Schema(implementation = OrderResponse.class)))
     })
     public ResponseEntity<OrderResponse> generateOrder(@Valid @RequestBody OrderCreation createOrder,
-                                                       Principal principal) {
+                                                       @AuthenticationPrincipal User user) {
 
         log.info("OrderController :: Request to generate order: {}", createOrder);
 
-        User user = userRepository.findByEmail(principal.getName())
-                .orElseThrow(() -> new UserNotFoundException("User not found."));
-
         OrderResponse response = orderService.createOrder(createOrder, user.getId());
 
         log.info("OrderController :: Order successfully created for userId: {}", user.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PreAuthorize("hasRole('USER')")
+    @PostMapping(path = "/generateOrders")
+    @Operation(
+            summary = "Generate orders in bulk",
+            description = "Creates many orders for the logged-in user at once. Every order is validated on its own, "
+                    + "the response lists the outcome of each order by its position in the request."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Orders processed",
+                    content = @Content(schema = @Schema(implementation = BulkOrderResponse.class)))
+    })
+    public ResponseEntity<BulkOrderResponse> generateOrders(@Valid @RequestBody BulkOrderRequest request,
+                                                            @AuthenticationPrincipal User user) {
+
+        log.info("OrderController :: Request to generate {} orders", request.getOrders().size());
+
+        BulkOrderResponse response = orderService.createOrders(request.getOrders(), user);
+
+        log.info("OrderController :: {} orders created for userId: {}", response.getCreated(), user.getId());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
     @PreAuthorize("hasRole('USER')")
     @GetMapping(path = "/orders")
     @Operation(
             summary = "Fetch user's orders",
-            description = "Returns paginated list of logged-in user's orders."
+            description = "Returns paginated list of logged-in user's orders. Supports If-None-Match, "
+                    + "an unchanged page is answered with 304."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Orders fetched successfully",
-                    content = @Content(schema = @Schema(implementation = Page.class)))
+                    content = @Content(schema = @Schema(implementation = Page.class))),
+            @ApiResponse(responseCode = "304", description = "Orders not modified")
     })
     public ResponseEntity<Page<OrderResponse>> fetchOrders(@RequestParam(defaultValue = "0") int page,
                                                            @RequestParam(defaultValue = "10") int size,
-                                                           Principal principal) {
+                                                           @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                           @AuthenticationPrincipal User user) {
 
         log.info("OrderController :: Fetching orders page: {}, size: {}", page, size);
 
-        User user = userRepository.findByEmail(principal.getName())
-                .orElseThrow(() -> new UserNotFoundException("User not found."));
+        if (ifNoneMatch != null) {
+            String eTag = orderService.fetchOrdersETag(page, size, user);
+            if (OrderMapper.eTagMatches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
 
         Page<OrderResponse> orders = orderService.fetchAllOrders(page, size, user);
+        List<String> orderETags = orders.map(OrderMapper::orderETag).getContent();
+        return ResponseEntity.ok()
+                .eTag(OrderMapper.pageETag(page, size, orders.getTotalElements(), orderETags))
+                .body(orders);
+    }
+
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(path = "/orders/cursor")
+    @Operation(
+            summary = "Fetch user's orders (cursor paginated)",
+            description = "Returns the logged-in user's orders newest first. Pass nextCursor of a response to get the next slice, no total count is computed."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders fetched successfully",
+                    content = @Content(schema = @Schema(implementation = CursorPage.class)))
+    })
+    public ResponseEntity<CursorPage<OrderResponse>> fetchOrdersByCursor(@RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = "10") int size,
+                                                                         @AuthenticationPrincipal User user) {
+
+        log.info("OrderController :: Fetching orders after cursor: {}, size: {}", cursor, size);
+
+        CursorPage<OrderResponse> orders = orderService.fetchOrdersByCursor(cursor, size, user);
         return ResponseEntity.ok(orders);
     }
 
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(path = "/summary")
+    @Operation(
+            summary = "Fetch user's order summary",
+            description = "Returns the logged-in user's order counts by status, total spend and latest orders in one lookup. "
+                    + "The summary is maintained from order events and may lag a few seconds behind the orders."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Summary fetched successfully",
+                    content = @Content(schema = @Schema(implementation = OrderSummaryResponse.class)))
+    })
+    public ResponseEntity<OrderSummaryResponse> fetchSummary(@AuthenticationPrincipal User user) {
+
+        log.info("OrderController :: Fetching order summary for userId: {}", user.getId());
+
+        OrderSummaryResponse summary = orderSummaryService.fetchSummary(user.getId());
+        return ResponseEntity.ok(summary);
+    }
+
     @PreAuthorize("hasRole('USER')")
     @GetMapping(path = "/fetch/{orderId}")
     @Operation(
             summary = "Fetch specific order details",
-            description = "Fetch details of a particular order using orderId."
+            description = "Fetch details of a particular order using orderId. Supports If-None-Match, "
+                    + "an unchanged order is answered with 304."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order fetched successfully",
-                    content = @Content(schema = @Schema(implementation = OrderResponse.class)))
+                    content = @Content(schema = @Schema(implementation = OrderResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Order not modified")
     })
     public ResponseEntity<OrderResponse> getOrderById(@PathVariable ObjectId orderId,
-                                                      Principal principal) {
+                                                      @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                      @AuthenticationPrincipal User user) {
 
         log.info("OrderController :: Fetching order id: {}", orderId);
 
-        User user = userRepository.findByEmail(principal.getName())
-                .orElseThrow(() -> new UserNotFoundException("User not found."));
+        // only the version fields are read to answer a conditional request
+        if (ifNoneMatch != null) {
+            String eTag = orderService.fetchOrderETag(orderId, user);
+            if (OrderMapper.eTagMatches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
 
         OrderResponse fetchedOrder = orderService.fetchOrderViaId(orderId, user);
-        return ResponseEntity.ok(fetchedOrder);
+        return ResponseEntity.ok().eTag(OrderMapper.orderETag(fetchedOrder)).body(fetchedOrder);
+    }
+
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(path = "/poll/{orderId}")
+    @Operation(
+            summary = "Long-poll an order",
+            description = "Holds the request until the order no longer matches If-None-Match or the timeout (seconds) passes. "
+                    + "Answers with the changed order, or 304 on timeout."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order changed",
+                    content = @Content(schema = @Schema(implementation = OrderResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Order not modified before the timeout")
+    })
+    public DeferredResult<ResponseEntity<OrderResponse>> pollOrder(@PathVariable ObjectId orderId,
+                                                                   @RequestParam(defaultValue = "30") long timeout,
+                                                                   @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                   @AuthenticationPrincipal User user) {
+
+        log.info("OrderController :: Long-poll order id: {}, timeout: {}s", orderId, timeout);
+
+        return orderTrackingService.pollOrder(orderId, user, ifNoneMatch, Duration.ofSeconds(Math.max(1, timeout)));
     }
 
     @PreAuthorize("hasRole('USER')")
@@ -126,13 +240,10 @@ public class OrderController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Order cancelled successfully")
     })
-    public ResponseEntity<Void> cancelOrder(@PathVariable ObjectId orderId, Principal principal) {
+    public ResponseEntity<Void> cancelOrder(@PathVariable ObjectId orderId, @AuthenticationPrincipal User user) {
 
         log.info("OrderController :: Cancel order request id: {}", orderId);
 
-        User user = userRepository.findByEmail(principal.getName())
-                .orElseThrow(() -> new UserNotFoundException("User not found."));
-
         orderService.cancelOrder(orderId, user);
         return ResponseEntity.noContent().build();
     }
@@ -145,18 +256,74 @@ public class OrderController {
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order status updated successfully",
-                    content = @Content(schema = @Schema(implementation = OrderResponse.class)))
+                    content = @Content(schema = @Schema(implementation = OrderResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Order kept changing concurrently, retry the update")
     })
     public ResponseEntity<OrderResponse> updateOrderStatus(@PathVariable ObjectId orderId,
                                                            @Valid @RequestBody OrderUpdateStatus request,
-                                                           Principal principal) {
+                                                           @AuthenticationPrincipal User user) {
 
         log.info("OrderController :: Update order status request id: {}", orderId);
 
-        User user = userRepository.findByEmail(principal.getName())
-                .orElseThrow(() -> new UserNotFoundException("User not found."));
-
         OrderResponse updatedOrder = orderService.updateOrder(orderId, request, user);
         return ResponseEntity.ok(updatedOrder);
     }
+
+    @PreAuthorize("hasRole('USER')")
+    @PutMapping(path = "/update")
+    @Operation(
+            summary = "Update order statuses in bulk",
+            description = "Applies many (orderId, status) transitions with the same rules as a single update. "
+                    + "The response lists the outcome of each transition in request order."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transitions processed",
+                    content = @Content(schema = @Schema(implementation = BulkStatusResponse.class)))
+    })
+    public ResponseEntity<BulkStatusResponse> updateOrderStatuses(@Valid @RequestBody BulkStatusRequest request,
+                                                                  @AuthenticationPrincipal User user) {
+
+        log.info("OrderController :: Bulk status update request for {} orders", request.getTransitions().size());
+
+        BulkStatusResponse response = orderService.updateOrders(request.getTransitions(), user);
+        return ResponseEntity.ok(response);
+    }
+
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(path = "/track/{orderId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Track an order",
+            description = "Streams status changes of the order as server-sent events. The current state is sent first, "
+                    + "a client reconnecting with Last-Event-ID receives the events it missed."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened")
+    })
+    public ResponseEntity<SseEmitter> trackOrder(@PathVariable ObjectId orderId,
+                                                 @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+                                                 @AuthenticationPrincipal User user) {
+
+        log.info("OrderController :: Track order request id: {}", orderId);
+
+        SseEmitter emitter = orderTrackingService.trackOrder(orderId, user, lastEventId);
+        return ResponseEntity.ok(emitter);
+    }
+
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(path = "/track", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Track all orders",
+            description = "Streams status changes of all of the logged-in user's orders as server-sent events."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened")
+    })
+    public ResponseEntity<SseEmitter> trackOrders(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+                                                  @AuthenticationPrincipal User user) {
+
+        log.info("OrderController :: Track orders request for userId: {}", user.getId());
+
+        SseEmitter emitter = orderTrackingService.trackOrders(user, lastEventId);
+        return ResponseEntity.ok(emitter);
+    }
 }
@@ -0,0 +1,129 @@
+package com.reon.order_backend.diagnostics;
+
+import com.mongodb.ExplainVerbosity;
+import com.reon.order_backend.document.FailedEvent;
+import com.reon.order_backend.document.MailRetry;
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.OutboxEvent;
+import com.reon.order_backend.document.User;
+import com.reon.order_backend.kafka.producer.OutboxRelay;
+import com.reon.order_backend.repository.KeysetQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+explains the application's hot queries at startup and reports every one whose winning plan scans the
+whole collection, i.e. a query without a matching index. warns by default, fails the startup when
+query-plan.verify.fail-on-collection-scan is set (recommended for ci and staging).
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "query-plan.verify.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryPlanVerifier implements ApplicationRunner {
+    private static final String COLLECTION_SCAN = "COLLSCAN";
+
+    private final MongoTemplate mongoTemplate;
+    private final QueryMapper queryMapper;
+
+    @Value("${query-plan.verify.fail-on-collection-scan}")
+    private boolean failOnCollectionScan;
+
+    public QueryPlanVerifier(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.queryMapper = new QueryMapper(mongoTemplate.getConverter());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ObjectId sampleId = new ObjectId();
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Check> checks = Map.of(
+                "orders by user", new Check(Order.class,
+                        new Query(Criteria.where("userId").is(sampleId)).limit(10)),
+                "orders by user (keyset)", new Check(Order.class,
+                        KeysetQuery.slice(Criteria.where("userId").is(sampleId), null, 10)),
+                "orders by status and last change", new Check(Order.class,
+                        new Query(Criteria.where("status").is(Order.Status.PENDING).and("updateOn").lt(now))
+                                .with(Sort.by("updateOn")).limit(10)),
+                "user by email", new Check(User.class,
+                        new Query(Criteria.where("email").is("sample@example.com"))),
+                "users (keyset)", new Check(User.class,
+                        KeysetQuery.slice(new Criteria(), null, 10)),
+                "pending outbox events", new Check(OutboxEvent.class,
+                        new Query(OutboxRelay.claimable(now)).with(Sort.by("id")).limit(10)),
+                "failed events by topic and time", new Check(FailedEvent.class,
+                        new Query(Criteria.where("topic").is("sample").and("failedAt").gte(now)).limit(10)),
+                "due mail retries", new Check(MailRetry.class,
+                        new Query(Criteria.where("dueAt").lte(now)).with(Sort.by("dueAt")).limit(10))
+        );
+
+        List<String> scans = new ArrayList<>();
+        checks.forEach((name, check) -> {
+            try {
+                if (scansCollection(check)) {
+                    scans.add(name);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Query Plan Verifier :: Could not explain '{}': {}", name, e.getMessage());
+            }
+        });
+
+        if (scans.isEmpty()) {
+            log.info("Query Plan Verifier :: All {} checked queries use an index", checks.size());
+            return;
+        }
+        String message = "Queries running as collection scans: " + scans;
+        if (failOnCollectionScan) {
+            throw new IllegalStateException(message);
+        }
+        log.warn("Query Plan Verifier :: !!! {} !!! check the indexes declared on the documents", message);
+    }
+
+    private boolean scansCollection(Check check) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(check.entity());
+        Document filter = queryMapper.getMappedObject(check.query().getQueryObject(), entity);
+        Document sort = queryMapper.getMappedSort(check.query().getSortObject(), entity);
+        Document plan = mongoTemplate.getCollection(entity.getCollection())
+                .find(filter)
+                .sort(sort)
+                .limit(check.query().getLimit())
+                .explain(ExplainVerbosity.QUERY_PLANNER);
+        Object winningPlan = plan.get("queryPlanner") instanceof Document planner ? planner.get("winningPlan") : null;
+        return containsStage(winningPlan, COLLECTION_SCAN);
+    }
+
+    // plans are trees (inputStage / inputStages, queryPlan for the sbe engine), walk all of it
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+
+    private record Check(Class<?> entity, Query query) {
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -15,10 +16,14 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Document(collection = "failed_events")
+@CompoundIndex(name = "topic_failed_idx", def = "{'topic': 1, 'failedAt': 1}")
 public class FailedEvent {
     private ObjectId id;
     private String topic;
+    private String consumerGroup;           // the group that gave up on the event, replays target only this group
     private OrderEventDTO payload;
     private String errorMessage;
+    private String exceptionClass;
     private LocalDateTime failedAt;
+    private LocalDateTime replayedAt;       // set once the event has been re-published by a replay job
 }
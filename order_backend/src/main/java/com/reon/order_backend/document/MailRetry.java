@@ -0,0 +1,36 @@
+package com.reon.order_backend.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/*
+journal of accepted emails that were not sent yet. while a node holds the email in memory, dueAt is its lease.
+retries due too far in the future or pending on shutdown are parked here with their real due time,
+and loaded back into the retry wheel shortly before they are due.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "mail_retries")
+public class MailRetry {
+    @Id
+    private ObjectId id;
+    private String to;
+    private String subject;
+    private String body;
+    private String html;
+    private int attempt;
+    private String lastError;
+
+    @Indexed
+    private LocalDateTime dueAt;
+}
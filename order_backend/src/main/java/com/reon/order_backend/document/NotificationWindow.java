@@ -0,0 +1,37 @@
+package com.reon.order_backend.document;
+
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+an open coalescing window of the StatusNotificationCoalescer, keyed by order id (hex) or by recipient.
+the events are written here before their offsets are committed, whoever removes the window sends its email.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "notification_windows")
+public class NotificationWindow {
+    @Id
+    private String key;
+
+    @Builder.Default
+    private List<OrderEventDTO> events = new ArrayList<>();
+
+    // sends of the window that failed so far
+    private int attempts;
+
+    @Indexed
+    private LocalDateTime dueAt;
+}
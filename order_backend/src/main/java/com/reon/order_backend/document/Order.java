@@ -8,27 +8,53 @@ import org.bson.types.ObjectId;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Map;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Document(collection = "orders")
+@CompoundIndexes({
+        // a user's orders, newest first (offset and keyset listing)
+        @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdOn': -1, '_id': -1}"),
+        // orders in a given status by last change (back office and stuck order sweeps)
+        @CompoundIndex(name = "status_updated_idx", def = "{'status': 1, 'updateOn': 1}")
+})
 public class Order {
+    /*
+    v2 layout: payload fields use short names, the amount is stored in minor units and the status timestamps
+    as an array of epoch millis indexed by status ordinal. fields used in queries and indexes keep their names.
+    v1 documents are rewritten to v2 when loaded (OrderFormat) and in the background (OrderFormatMigration).
+     */
+    public static final int SCHEMA_VERSION = 2;
+    public static final String ITEMS_FIELD = "it";
+    public static final String AMOUNT_FIELD = "amt";
+    public static final String STATUS_TIMES_FIELD = "ts";
+    public static final String SCHEMA_VERSION_FIELD = "sv";
+
     @Id
     private ObjectId id;
     private ObjectId userId;    // which user has placed the order.
 
     // todo: later create a product document..
+    @Field(ITEMS_FIELD)
     private List<String> items = new ArrayList<>();
-    private Double amount;
+    @Field(AMOUNT_FIELD)
+    private Long amountMinor;   // amount in cents
     private Status status;
 
     public enum Status {
@@ -43,10 +69,75 @@ public class Order {
         RETURNED            // Customer returned the order
     }
 
-    private Map<String, LocalDateTime> timeStamps = new HashMap<>();
+    // epoch millis at which each status was reached, indexed by ordinal, null for statuses never reached
+    @Field(STATUS_TIMES_FIELD)
+    @Builder.Default
+    private List<Long> statusTimes = new ArrayList<>();
+
+    @Field(SCHEMA_VERSION_FIELD)
+    @Builder.Default
+    private Integer schemaVersion = SCHEMA_VERSION;
+
+    // incremented on every status change, carried in the order's events so consumers can drop stale updates.
+    private Long eventSequence;
+
+    // optimistic lock, bumped by every write. status transitions increment it inside their conditional update.
+    @Version
+    private Long version;
 
     @CreatedDate
     private LocalDateTime createdOn;
     @LastModifiedDate
     private LocalDateTime updateOn;
+
+    public Double amount() {
+        return fromMinorUnits(amountMinor);
+    }
+
+    public EnumMap<Status, LocalDateTime> timeStamps() {
+        EnumMap<Status, LocalDateTime> timeStamps = new EnumMap<>(Status.class);
+        if (statusTimes == null) {
+            return timeStamps;
+        }
+        Status[] statuses = Status.values();
+        for (int i = 0; i < statusTimes.size() && i < statuses.length; i++) {
+            Long millis = statusTimes.get(i);
+            if (millis != null) {
+                timeStamps.put(statuses[i], fromEpochMillis(millis));
+            }
+        }
+        return timeStamps;
+    }
+
+    // records when the order reached the status, in memory only. updates set statusTimesPath(status) directly.
+    public void stamp(Status status, LocalDateTime at) {
+        if (statusTimes == null) {
+            statusTimes = new ArrayList<>();
+        }
+        while (statusTimes.size() <= status.ordinal()) {
+            statusTimes.add(null);
+        }
+        statusTimes.set(status.ordinal(), toEpochMillis(at));
+    }
+
+    public static String statusTimesPath(Status status) {
+        return STATUS_TIMES_FIELD + "." + status.ordinal();
+    }
+
+    public static long toMinorUnits(double amount) {
+        return BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static Double fromMinorUnits(Long amountMinor) {
+        return amountMinor == null ? null : BigDecimal.valueOf(amountMinor, 2).doubleValue();
+    }
+
+    // spring data stores LocalDateTime in the system zone as well, so both representations agree
+    public static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
 }
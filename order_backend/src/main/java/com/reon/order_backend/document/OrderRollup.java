@@ -0,0 +1,76 @@
+package com.reon.order_backend.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+order activity of one time bucket (minute, hour or day), built up incrementally from the order events.
+the id is "<granularity>:<bucket start>", so every flush is an upsert of $inc on a known document.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "order_rollups")
+@CompoundIndex(name = "granularity_bucket_idx", def = "{'granularity': 1, 'bucketStart': 1}")
+public class OrderRollup {
+    @Id
+    private String id;
+    private Granularity granularity;
+    private LocalDateTime bucketStart;
+
+    private long placed;
+    private long revenueMinor;              // cents of the orders placed in the bucket
+    private long cancelledRevenueMinor;     // cents of the orders cancelled in the bucket
+
+    // orders that entered each Order.Status in the bucket, by status name
+    @Builder.Default
+    private Map<String, Long> statusCounts = new HashMap<>();
+
+    // status changes in the bucket, keyed "<FROM>_TO_<TO>"
+    @Builder.Default
+    private Map<String, Long> transitions = new HashMap<>();
+
+    // minute and hour buckets are purged by mongo once past their retention, day buckets are kept
+    @Indexed(expireAfterSeconds = 0)
+    private LocalDateTime expireAt;
+
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public ChronoUnit unit() {
+            return unit;
+        }
+
+        public LocalDateTime bucketOf(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+    }
+
+    public static String idOf(Granularity granularity, LocalDateTime bucketStart) {
+        return granularity.name() + ":" + bucketStart;
+    }
+
+    public static String transitionKey(Order.Status from, Order.Status to) {
+        return from.name() + "_TO_" + to.name();
+    }
+}
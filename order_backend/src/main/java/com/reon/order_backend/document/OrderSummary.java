@@ -0,0 +1,64 @@
+package com.reon.order_backend.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+read model of a user's orders for the dashboard, one document per user keyed by the user id.
+maintained from the order events by OrderSummaryConsumer, never written by the order service itself.
+a cancelled order is deleted from the orders collection, so the summary drops it entirely instead of counting it
+as CANCELLED, which keeps an event maintained summary equal to one rebuilt from the orders.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "order_summaries")
+public class OrderSummary {
+    @Id
+    private ObjectId userId;
+
+    // number of orders per Order.Status name
+    @Builder.Default
+    private Map<String, Long> statusCounts = new HashMap<>();
+
+    // in cents, cancelled orders are taken off again
+    private long totalSpendMinor;
+
+    // last event sequence reflected per order id (hex), events at or below it are skipped
+    @Builder.Default
+    private Map<String, Long> appliedSequences = new HashMap<>();
+
+    // when each cancelled order (hex) was taken off, its watermark is dropped after summary.watermark-retention
+    @Builder.Default
+    private Map<String, LocalDateTime> cancelledOn = new HashMap<>();
+
+    // newest first, capped to summary.recent-orders
+    @Builder.Default
+    private List<RecentOrder> recentOrders = new ArrayList<>();
+
+    private LocalDateTime updatedOn;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class RecentOrder {
+        private ObjectId orderId;
+        private Order.Status status;
+        private Long amountMinor;
+        private Long sequence;
+        private LocalDateTime createdOn;
+    }
+}
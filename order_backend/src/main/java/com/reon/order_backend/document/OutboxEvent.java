@@ -0,0 +1,56 @@
+package com.reon.order_backend.document;
+
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/*
+order events waiting to be relayed to kafka. rows are written in the transaction of the order change they describe
+and drained in insertion (_id) order by the outbox relay.
+a relay claims a row (PUBLISHING) for leaseUntil before sending it, so with several nodes every row is sent
+by one of them. a row whose relay died becomes claimable again once the lease has run out.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "order_outbox")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_id_idx", def = "{'status': 1, '_id': 1}"),
+        // older unsent rows of a key, checked by the relay before it sends the key
+        @CompoundIndex(name = "key_id_idx", def = "{'messageKey': 1, '_id': 1}")
+})
+public class OutboxEvent {
+    @Id
+    private ObjectId id;
+    private String topic;
+    private String messageKey;
+    private OrderEventDTO payload;
+    private Status status;
+    private int attempts;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private String leaseOwner;          // claim token of the relay batch currently sending the row
+    private LocalDateTime leaseUntil;
+
+    // published rows are purged by mongo once they are a week old, pending rows have no value here.
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime publishedAt;
+
+    public enum Status {
+        PENDING,
+        PUBLISHING,
+        PUBLISHED,
+        FAILED              // gave up after outbox.relay.max-attempts sends, kept for inspection
+    }
+}
@@ -0,0 +1,26 @@
+package com.reon.order_backend.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/*
+marker for an event a consumer has already handled, kept compact on purpose: the id is "<consumer>:<eventKey>".
+mongo drops the markers after a week, far longer than any redelivery or retry window.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "processed_events")
+public class ProcessedEvent {
+    @Id
+    private String id;
+
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime processedAt;
+}
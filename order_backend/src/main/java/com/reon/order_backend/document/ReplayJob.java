@@ -0,0 +1,50 @@
+package com.reon.order_backend.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/*
+an admin triggered replay of failed events. lastProcessedId is the checkpoint, a resumed job
+continues with the failed events after it.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "replay_jobs")
+public class ReplayJob {
+    @Id
+    private ObjectId id;
+
+    // filters
+    private String topic;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String errorContains;
+
+    // throughput control
+    private int ratePerSecond;
+    private int batchSize;
+
+    // progress
+    private Status status;
+    private ObjectId lastProcessedId;
+    private long replayedCount;
+    private String lastError;
+    private LocalDateTime createdOn;
+    private LocalDateTime updatedOn;
+
+    public enum Status {
+        RUNNING,
+        PAUSED,
+        COMPLETED,
+        FAILED
+    }
+}
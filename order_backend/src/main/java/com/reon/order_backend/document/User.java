@@ -8,8 +8,8 @@ import org.bson.types.ObjectId;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -24,6 +24,7 @@ import java.util.stream.Collectors;
 @NoArgsConstructor
 @Builder
 @Document(collection = "users")
+@CompoundIndex(name = "created_id_idx", def = "{'createdOn': -1, '_id': -1}")
 public class User implements UserDetails {
     @Id
     private ObjectId id;
@@ -47,8 +48,8 @@ public class User implements UserDetails {
         ADMIN
     }
 
-    @DBRef
-    private List<Order> orderList = new ArrayList<>();
+    // plain ids of the user's orders, never resolved when a user is loaded. query orders.userId for the orders.
+    private List<ObjectId> orderIds = new ArrayList<>();
 
     // related to spring security
     @Override
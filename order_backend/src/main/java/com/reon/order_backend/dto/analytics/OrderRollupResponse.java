@@ -0,0 +1,25 @@
+package com.reon.order_backend.dto.analytics;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.OrderRollup;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderRollupResponse {
+    private OrderRollup.Granularity granularity;
+    private LocalDateTime bucketStart;
+    private long placed;
+    private Map<Order.Status, Long> statusCounts;
+    private Map<String, Long> transitions;      // "<FROM>_TO_<TO>" -> count
+    private Double revenue;
+    private Double cancelledRevenue;
+}
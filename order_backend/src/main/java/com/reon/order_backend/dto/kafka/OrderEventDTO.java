@@ -1,5 +1,6 @@
 package com.reon.order_backend.dto.kafka;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.reon.order_backend.document.Order;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,7 +15,12 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class OrderEventDTO {
+    /*
+    order placed events carry the whole order. status events only carry orderId, status, sequence and
+    eventCreationTime, consumers fill in userId and email through the OrderSnapshotCache.
+     */
     private ObjectId orderId;
     private ObjectId userId;
     private String email;
@@ -22,4 +28,11 @@ public class OrderEventDTO {
     private List<String> items;
     private Double amount;
     private Order.Status status;
+    private Long sequence;       // per order, increases with every status change
+    private Order.Status previousStatus;    // status events only, the status the order changed from
+
+    // identifies the event across redeliveries, (orderId, sequence) is unique per order event
+    public String eventKey() {
+        return orderId.toHexString() + ":" + (sequence != null ? sequence : status);
+    }
 }
@@ -0,0 +1,19 @@
+package com.reon.order_backend.dto.order;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// orders are validated one by one, an invalid order is rejected in the response without failing the others
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkOrderRequest {
+    @NotEmpty(message = "Request must contain at least one order")
+    @Size(max = 500, message = "At most 500 orders can be placed at once")
+    private List<OrderCreation> orders;
+}
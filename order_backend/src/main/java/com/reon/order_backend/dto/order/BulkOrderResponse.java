@@ -0,0 +1,18 @@
+package com.reon.order_backend.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkOrderResponse {
+    private int created;
+    private int rejected;
+    private List<BulkOrderResult> results;
+}
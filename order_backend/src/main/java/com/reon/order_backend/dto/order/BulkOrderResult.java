@@ -0,0 +1,20 @@
+package com.reon.order_backend.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// outcome of one order of a bulk request, index is its position in the request
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkOrderResult {
+    private int index;
+    private boolean created;
+    private OrderResponse order;
+    private Map<String, String> errors;
+}
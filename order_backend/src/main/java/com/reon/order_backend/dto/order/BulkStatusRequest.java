@@ -0,0 +1,19 @@
+package com.reon.order_backend.dto.order;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// transitions are validated one by one, an invalid transition is reported in the response without failing the others
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkStatusRequest {
+    @NotEmpty(message = "Request must contain at least one transition")
+    @Size(max = 20000, message = "At most 20000 transitions can be applied at once")
+    private List<StatusTransition> transitions;
+}
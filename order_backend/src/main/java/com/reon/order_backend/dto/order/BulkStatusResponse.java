@@ -0,0 +1,18 @@
+package com.reon.order_backend.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkStatusResponse {
+    private int updated;
+    private int failed;
+    private List<StatusTransitionResult> results;
+}
@@ -24,4 +24,5 @@ public class OrderResponse {
     private Map<String, LocalDateTime> timeStamps;
     private LocalDateTime createdOn;
     private LocalDateTime updateOn;
+    private Long eventSequence;     // grows with every status change, null for orders created before sequencing
 }
@@ -0,0 +1,26 @@
+package com.reon.order_backend.dto.order;
+
+import com.reon.order_backend.document.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StatusTransitionResult {
+    private String orderId;
+    private Outcome outcome;
+    private Order.Status status;    // status of the order after the request, null when it was not found
+    private String message;
+
+    public enum Outcome {
+        UPDATED,        // transition applied
+        INVALID,        // the transition itself is malformed: no or not a valid order id, no status
+        NOT_FOUND,      // no such order for the user
+        REJECTED,       // transition not allowed from the current status
+        CONFLICT        // the order changed while the request was applied, retry with the new status
+    }
+}
@@ -0,0 +1,29 @@
+package com.reon.order_backend.dto.replay;
+
+import com.reon.order_backend.document.ReplayJob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReplayJobResponse {
+    private ObjectId id;
+    private String topic;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String errorContains;
+    private int ratePerSecond;
+    private int batchSize;
+    private ReplayJob.Status status;
+    private long replayedCount;
+    private String lastError;
+    private LocalDateTime createdOn;
+    private LocalDateTime updatedOn;
+}
@@ -0,0 +1,31 @@
+package com.reon.order_backend.dto.replay;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReplayRequest {
+    private String topic;               // order_event / order_update_event, all topics when empty
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String errorContains;
+
+    @Min(value = 1, message = "Rate must be at least 1 event per second")
+    @Max(value = 10000, message = "Rate must not exceed 10000 events per second")
+    @Builder.Default
+    private int ratePerSecond = 100;
+
+    @Min(value = 1, message = "Batch size must be at least 1")
+    @Max(value = 5000, message = "Batch size must not exceed 5000")
+    @Builder.Default
+    private int batchSize = 500;
+}
@@ -0,0 +1,25 @@
+package com.reon.order_backend.dto.summary;
+
+import com.reon.order_backend.document.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderSummaryResponse {
+    private ObjectId userId;
+    private long totalOrders;
+    private Map<Order.Status, Long> statusCounts;
+    private Double totalSpend;
+    private List<RecentOrderResponse> recentOrders;
+    private LocalDateTime updatedOn;
+}
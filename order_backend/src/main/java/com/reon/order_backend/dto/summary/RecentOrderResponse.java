@@ -0,0 +1,21 @@
+package com.reon.order_backend.dto.summary;
+
+import com.reon.order_backend.document.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RecentOrderResponse {
+    private ObjectId orderId;
+    private Order.Status status;
+    private Double amount;
+    private LocalDateTime createdOn;
+}
@@ -0,0 +1,26 @@
+package com.reon.order_backend.dto.tracking;
+
+import com.reon.order_backend.document.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+
+// what a tracking client receives for every status change, the sse event id is orderId:sequence
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderTrackingEvent {
+    private ObjectId orderId;
+    private Order.Status status;
+    private Long sequence;
+    private LocalDateTime updatedAt;
+
+    public String eventId() {
+        return orderId.toHexString() + ":" + (sequence != null ? sequence : status);
+    }
+}
@@ -0,0 +1,21 @@
+package com.reon.order_backend.dto.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderRefReport {
+    private long usersChecked;
+    private long inconsistentUsers;
+    private long danglingRefs;      // ids in users.orderIds without an order of that user
+    private long missingRefs;       // orders of a user missing from its orderIds
+    private boolean repaired;
+    private List<String> sampleUserIds;
+}
@@ -1,6 +1,5 @@
 package com.reon.order_backend.dto.user;
 
-import com.reon.order_backend.document.Order;
 import com.reon.order_backend.document.User;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -24,5 +23,5 @@ public class UserResponse {
     private Set<User.Role> roles;
     private LocalDateTime createdOn;
     private LocalDateTime updatedOn;
-    private List<Order> orderList;
+    private List<ObjectId> orderIds;
 }
@@ -0,0 +1,17 @@
+package com.reon.order_backend.email;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailMessage {
+    private String to;
+    private String subject;
+    private String body;        // plain text
+    private String html;        // optional html alternative of the body
+}
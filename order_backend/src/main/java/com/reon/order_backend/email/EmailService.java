@@ -1,9 +1,15 @@
 package com.reon.order_backend.email;
 
+import java.util.List;
+
 public interface EmailService {
     /*
     send order status notification to user
      */
-    void sendOrderSuccessEmail(String to, String subject, String body);
-    void sendOrderStatusEmail(String to, String subject, String body);
+    void send(EmailMessage message);
+
+    /*
+    send many notifications at once
+     */
+    void sendBatch(List<EmailMessage> messages);
 }
@@ -1,54 +1,32 @@
 package com.reon.order_backend.email;
 
+import com.reon.order_backend.email.delivery.MailDeliveryEngine;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
+/*
+emails are handed to the mail delivery engine and sent asynchronously by its smtp workers.
+ */
 @Service
 @Slf4j
 public class EmailServiceImpl implements EmailService {
-    @Value("${email.sender}")
-    private String emailSender;
-
-    private final JavaMailSender mailSender;
+    private final MailDeliveryEngine deliveryEngine;
 
-    public EmailServiceImpl(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailServiceImpl(MailDeliveryEngine deliveryEngine) {
+        this.deliveryEngine = deliveryEngine;
     }
 
     @Override
-    public void sendOrderSuccessEmail(String to, String subject, String body) {
-        log.info("Sending order success email to: {}",to);
-
-        SimpleMailMessage message = new SimpleMailMessage();
-
-//        // for test purpose only.
-//        if (to.equals("keith@outlook.com")) {
-//            throw new RuntimeException("Invalid User.");
-//        }
-
-        message.setFrom(emailSender);
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(body);
-
-        mailSender.send(message);
-        log.info("Order success email sent to: {}",to);
+    public void send(EmailMessage message) {
+        log.info("Queueing '{}' email to: {}", message.getSubject(), message.getTo());
+        deliveryEngine.submit(message);
     }
 
     @Override
-    public void sendOrderStatusEmail(String to, String subject, String body) {
-        log.info("Sending order status email to: {}",to);
-
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(emailSender);
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(body);
-
-        mailSender.send(message);
-        log.info("Order status email sent to: {}",to);
+    public void sendBatch(List<EmailMessage> messages) {
+        log.info("Queueing batch of {} emails", messages.size());
+        deliveryEngine.submitAll(messages);
     }
 }
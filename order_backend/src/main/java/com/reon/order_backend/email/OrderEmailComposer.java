@@ -0,0 +1,118 @@
+package com.reon.order_backend.email;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.email.template.EmailTemplate;
+import com.reon.order_backend.email.template.EmailTemplateRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+renders the notification emails for order events from the precompiled templates.
+a status specific template (e.g. order-status-shipped) takes precedence over the generic order-status one.
+ */
+@Component
+public class OrderEmailComposer {
+    private static final String SUMMARY_ENTRY = "order-status-summary-entry";
+
+    private final EmailTemplateRegistry templateRegistry;
+    private final Map<Order.Status, String> statusTemplateNames = new EnumMap<>(Order.Status.class);
+
+    public OrderEmailComposer(EmailTemplateRegistry templateRegistry) {
+        this.templateRegistry = templateRegistry;
+        for (Order.Status status : Order.Status.values()) {
+            statusTemplateNames.put(status, "order-status-" + status.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+        }
+    }
+
+    public EmailMessage orderPlaced(OrderEventDTO orderEventDTO) {
+        Function<String, Object> values = name -> switch (name) {
+            case "items" -> textItems(orderEventDTO.getItems());
+            case "itemsHtml" -> htmlItems(orderEventDTO.getItems());
+            case "amount" -> BigDecimal.valueOf(orderEventDTO.getAmount()).setScale(2, RoundingMode.HALF_UP).toPlainString();
+            case "status" -> orderEventDTO.getStatus();
+            case "createdOn" -> orderEventDTO.getEventCreationTime();
+            case "orderId" -> orderEventDTO.getOrderId();
+            default -> null;
+        };
+        return compose("order-placed", orderEventDTO.getEmail(), "Order Placed", values);
+    }
+
+    public EmailMessage orderStatus(OrderEventDTO orderEventDTO) {
+        Function<String, Object> values = name -> switch (name) {
+            case "orderId" -> orderEventDTO.getOrderId();
+            case "status" -> orderEventDTO.getStatus();
+            default -> null;
+        };
+        String specific = statusTemplateNames.get(orderEventDTO.getStatus());
+        String name = templateRegistry.find(specific, EmailTemplate.Variant.TEXT).isPresent() ? specific : "order-status";
+        return compose(name, orderEventDTO.getEmail(), "Order Status", values);
+    }
+
+    // one email for several updates, each order lists its latest status and the transitions that led there
+    public EmailMessage orderStatusSummary(String to, Collection<List<OrderEventDTO>> orderHistories) {
+        EmailTemplate textEntry = templateRegistry.find(SUMMARY_ENTRY, EmailTemplate.Variant.TEXT)
+                .orElseThrow(() -> new IllegalStateException("Missing email template: " + SUMMARY_ENTRY));
+        Optional<EmailTemplate> htmlEntry = templateRegistry.find(SUMMARY_ENTRY, EmailTemplate.Variant.HTML);
+        StringBuilder text = new StringBuilder();
+        StringBuilder html = new StringBuilder();
+        for (List<OrderEventDTO> history : orderHistories) {
+            OrderEventDTO latest = history.get(history.size() - 1);
+            String transitions = history.stream()
+                    .map(event -> event.getStatus().name())
+                    .collect(Collectors.joining(" -> "));
+            Function<String, Object> entry = name -> switch (name) {
+                case "orderId" -> latest.getOrderId();
+                case "status" -> latest.getStatus();
+                case "history" -> transitions;
+                default -> null;
+            };
+            text.append(textEntry.render(entry));
+            htmlEntry.ifPresent(template -> html.append(template.render(entry)));
+        }
+        Function<String, Object> values = name -> switch (name) {
+            case "updates" -> text;
+            case "updatesHtml" -> html;
+            default -> null;
+        };
+        return compose("order-status-summary", to, "Order Status", values);
+    }
+
+    private EmailMessage compose(String templateName, String to, String subject, Function<String, Object> values) {
+        String text = templateRegistry.find(templateName, EmailTemplate.Variant.TEXT)
+                .orElseThrow(() -> new IllegalStateException("Missing email template: " + templateName))
+                .render(values);
+        String html = templateRegistry.find(templateName, EmailTemplate.Variant.HTML)
+                .map(template -> template.render(values))
+                .orElse(null);
+        return EmailMessage.builder()
+                .to(to)
+                .subject(subject)
+                .body(text)
+                .html(html)
+                .build();
+    }
+
+    private String textItems(List<String> items) {
+        StringBuilder builder = new StringBuilder();
+        items.forEach(item -> builder.append("- ").append(item).append("\n"));
+        return builder.toString();
+    }
+
+    private String htmlItems(List<String> items) {
+        StringBuilder builder = new StringBuilder();
+        items.forEach(item -> builder.append("<li>").append(HtmlUtils.htmlEscape(item)).append("</li>"));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.reon.order_backend.email.delivery;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+per destination domain rate limits for outgoing mail. every domain gets its own bucket,
+domains listed in mail.delivery.rate-limit.domains ("gmail.com=20,outlook.com=5") override the default rate.
+ */
+@Component
+public class DomainRateLimiter {
+    private final double defaultPerSecond;
+    private final int burst;
+    private final Map<String, Double> overrides = new HashMap<>();
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public DomainRateLimiter(@Value("${mail.delivery.rate-limit.default-per-second}") double defaultPerSecond,
+                             @Value("${mail.delivery.rate-limit.burst}") int burst,
+                             @Value("${mail.delivery.rate-limit.domains}") String domains) {
+        this.defaultPerSecond = defaultPerSecond;
+        this.burst = burst;
+        for (String entry : domains.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length == 2) {
+                overrides.put(parts[0].trim().toLowerCase(Locale.ROOT), Double.parseDouble(parts[1].trim()));
+            }
+        }
+    }
+
+    /*
+    reserves the next free slot of the domain and returns how long (in nanos) the caller has to wait before using it.
+    callers never sleep on it, a delivery that has to wait is parked in the retry wheel until its slot comes up,
+    so a throttled domain does not hold up the workers sending to every other domain.
+     */
+    public long reserve(String domain) {
+        String key = domain.toLowerCase(Locale.ROOT);
+        return buckets.computeIfAbsent(key, d -> new Bucket(overrides.getOrDefault(d, defaultPerSecond), burst))
+                .reserve();
+    }
+
+    public static String domainOf(String address) {
+        int at = address.lastIndexOf('@');
+        return at < 0 ? address : address.substring(at + 1);
+    }
+
+    private static final class Bucket {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private long nextFreeNanos = System.nanoTime();
+
+        private Bucket(double perSecond, int burst) {
+            this.intervalNanos = (long) (1_000_000_000L / perSecond);
+            this.burstNanos = intervalNanos * Math.max(0, burst - 1);
+        }
+
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            // unused capacity accumulates up to the burst size while the domain is idle
+            long start = Math.max(nextFreeNanos, now - burstNanos);
+            nextFreeNanos = start + intervalNanos;
+            return Math.max(0, start - now);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.reon.order_backend.email.delivery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/*
+hierarchical timing wheel (varghese & lauck). level 0 has one bucket per tick, every further level covers
+wheel-size times the span of the level below. scheduling and expiring are O(1), an entry is cascaded down
+at most once per level. not thread safe, the owner serializes access.
+ */
+final class HierarchicalTimerWheel<T> {
+    private final long tickNanos;
+    private final int wheelSize;
+    private final long[] levelSpans;            // ticks covered by one bucket of each level
+    private final List<Entry<T>>[][] buckets;
+    private final long startNanos;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    HierarchicalTimerWheel(long tickNanos, int wheelSize, int levels, long startNanos) {
+        this.tickNanos = tickNanos;
+        this.wheelSize = wheelSize;
+        this.levelSpans = new long[levels];
+        this.buckets = new List[levels][wheelSize];
+        this.startNanos = startNanos;
+        long span = 1;
+        for (int level = 0; level < levels; level++) {
+            levelSpans[level] = span;
+            span = Math.multiplyExact(span, wheelSize);
+        }
+    }
+
+    // longest delay the wheel can hold, longer ones have to be kept elsewhere
+    long horizonNanos() {
+        return levelSpans[levelSpans.length - 1] * wheelSize * tickNanos;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean schedule(T item, long deadlineNanos) {
+        long ticks = Math.max(1, (deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+        if (ticks - currentTick >= levelSpans[levelSpans.length - 1] * wheelSize) {
+            return false;
+        }
+        place(new Entry<>(item, Math.max(ticks, currentTick + 1)));
+        size++;
+        return true;
+    }
+
+    // moves the wheel up to now and hands every expired item to the consumer
+    void advance(long nowNanos, Consumer<T> expired) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = levelSpans.length - 1; level > 0; level--) {
+                if (currentTick % levelSpans[level] == 0) {
+                    List<Entry<T>> cascaded = take(level, currentTick);
+                    if (cascaded != null) {
+                        cascaded.forEach(this::place);
+                    }
+                }
+            }
+            List<Entry<T>> due = take(0, currentTick);
+            if (due != null) {
+                size -= due.size();
+                due.forEach(entry -> expired.accept(entry.item));
+            }
+        }
+    }
+
+    // empties the wheel, used to persist whatever is still pending on shutdown. passes each item with its deadline
+    void drain(BiConsumer<T, Long> pending) {
+        for (List<Entry<T>>[] level : buckets) {
+            for (int i = 0; i < level.length; i++) {
+                if (level[i] != null) {
+                    level[i].forEach(entry -> pending.accept(entry.item, startNanos + entry.expirationTick * tickNanos));
+                    level[i] = null;
+                }
+            }
+        }
+        size = 0;
+    }
+
+    private void place(Entry<T> entry) {
+        long remaining = Math.max(0, entry.expirationTick - currentTick);
+        int level = 0;
+        while (level < levelSpans.length - 1 && remaining >= levelSpans[level] * wheelSize) {
+            level++;
+        }
+        // an entry cascaded exactly on its expiration tick lands in the bucket expired right after
+        int index = (int) ((entry.expirationTick / levelSpans[level]) % wheelSize);
+        if (buckets[level][index] == null) {
+            buckets[level][index] = new ArrayList<>();
+        }
+        buckets[level][index].add(entry);
+    }
+
+    private List<Entry<T>> take(int level, long tick) {
+        int index = (int) ((tick / levelSpans[level]) % wheelSize);
+        List<Entry<T>> bucket = buckets[level][index];
+        buckets[level][index] = null;
+        return bucket;
+    }
+
+    private record Entry<T>(T item, long expirationTick) {
+    }
+}
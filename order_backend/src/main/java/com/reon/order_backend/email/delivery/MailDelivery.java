@@ -0,0 +1,22 @@
+package com.reon.order_backend.email.delivery;
+
+import com.reon.order_backend.email.EmailMessage;
+import org.bson.types.ObjectId;
+
+/*
+an email on its way to the smtp server, attempt counts the failed sends so far and id is its mail journal row.
+slotReserved is set once the delivery holds a domain rate limit slot, it is sent without asking the limiter again.
+ */
+record MailDelivery(EmailMessage email, int attempt, ObjectId id, boolean slotReserved) {
+    MailDelivery(EmailMessage email, int attempt, ObjectId id) {
+        this(email, attempt, id, false);
+    }
+
+    MailDelivery withReservedSlot() {
+        return new MailDelivery(email, attempt, id, true);
+    }
+
+    MailDelivery nextAttempt() {
+        return new MailDelivery(email, attempt + 1, id);
+    }
+}
@@ -0,0 +1,259 @@
+package com.reon.order_backend.email.delivery;
+
+import com.reon.order_backend.email.EmailMessage;
+import com.reon.order_backend.exception.MailQueueFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+asynchronous smtp delivery. messages go into a bounded queue and are sent by a pool of workers,
+each worker keeps its smtp connection open and sends many messages per session.
+when the queue is full, submit blocks the caller (the kafka listener) up to enqueue-timeout and then fails,
+so a slow mail relay slows consumption down instead of piling up messages in memory.
+every accepted email is journaled in mongo (MailJournal) before submit returns, a crash re-sends it instead of losing it.
+transient smtp failures are retried later through the MailRetryScheduler, the worker moves on to the next message.
+ */
+@Component
+@Slf4j
+public class MailDeliveryEngine {
+    private final JavaMailSenderImpl mailSender;
+    private final DomainRateLimiter rateLimiter;
+    private final MailRetryScheduler retryScheduler;
+    private final MailJournal mailJournal;
+    private final BlockingQueue<MailDelivery> queue;
+    private final Timer sendLatency;
+    private final Counter sendFailures;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Value("${email.sender}")
+    private String emailSender;
+
+    @Value("${mail.delivery.workers}")
+    private int workerCount;
+
+    @Value("${mail.delivery.enqueue-timeout}")
+    private Duration enqueueTimeout;
+
+    @Value("${mail.delivery.idle-timeout}")
+    private Duration idleTimeout;
+
+    @Value("${mail.delivery.max-messages-per-session}")
+    private int maxMessagesPerSession;
+
+    public MailDeliveryEngine(JavaMailSenderImpl mailSender, DomainRateLimiter rateLimiter,
+                              MailRetryScheduler retryScheduler, MailJournal mailJournal, MeterRegistry meterRegistry,
+                              @Value("${mail.delivery.queue-capacity}") int queueCapacity) {
+        this.mailSender = mailSender;
+        this.rateLimiter = rateLimiter;
+        this.retryScheduler = retryScheduler;
+        this.mailJournal = mailJournal;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("mail.delivery.queue.depth", queue, BlockingQueue::size)
+                .description("Emails waiting for an smtp worker")
+                .register(meterRegistry);
+        this.sendLatency = Timer.builder("mail.delivery.send.latency")
+                .description("Time taken to hand one email to the smtp server")
+                .register(meterRegistry);
+        this.sendFailures = Counter.builder("mail.delivery.failures")
+                .description("Emails that could not be delivered")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(new SmtpWorker(), "mail-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        retryScheduler.start(this::requeue);
+        log.info("Mail Delivery Engine :: Started {} smtp workers", workerCount);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        // the events behind queued emails are already committed, keep the emails for the next start
+        List<MailDelivery> undelivered = new ArrayList<>();
+        queue.drainTo(undelivered);
+        if (!undelivered.isEmpty()) {
+            log.warn("Mail Delivery Engine :: Shutting down, persisting {} undelivered emails", undelivered.size());
+            retryScheduler.persist(undelivered);
+        }
+    }
+
+    public void submit(EmailMessage email) {
+        submitAll(List.of(email));
+    }
+
+    /*
+    journals the emails and queues them. when the queue stays full, the emails not queued yet are dropped
+    from the journal again and MailQueueFullException reports how many were accepted.
+     */
+    public void submitAll(List<EmailMessage> emails) {
+        List<MailDelivery> deliveries = mailJournal.record(emails);
+        for (int i = 0; i < deliveries.size(); i++) {
+            MailDelivery delivery = deliveries.get(i);
+            boolean queued;
+            try {
+                queued = queue.offer(delivery, enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                mailJournal.discard(deliveries.subList(i, deliveries.size()));
+                throw new MailQueueFullException("Mail queue is full, email to " + delivery.email().getTo() + " not accepted.", i);
+            }
+        }
+    }
+
+    // retries never block, the ticker thread has to keep the wheel moving
+    private void requeue(MailDelivery delivery) {
+        if (!queue.offer(delivery)) {
+            retryScheduler.requeueLater(delivery);
+        }
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    private final class SmtpWorker implements Runnable {
+        private Transport transport;
+        private int sentOnSession;
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    MailDelivery delivery = queue.poll(idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                    if (delivery == null) {
+                        // nothing to send, do not keep an idle session open on the relay
+                        disconnect();
+                        continue;
+                    }
+                    process(delivery);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            disconnect();
+        }
+
+        // a malformed email (no recipient, no body) fails for good, it must not take the worker down with it
+        private void process(MailDelivery delivery) {
+            try {
+                if (!delivery.slotReserved()) {
+                    long waitNanos = rateLimiter.reserve(DomainRateLimiter.domainOf(delivery.email().getTo()));
+                    if (waitNanos > 0) {
+                        // the slot is ours, wait for it in the retry wheel instead of blocking this worker
+                        retryScheduler.defer(delivery.withReservedSlot(), waitNanos);
+                        return;
+                    }
+                }
+                deliver(delivery);
+            } catch (RuntimeException e) {
+                disconnect();
+                mailJournal.complete(delivery);
+                sendFailures.increment();
+                log.error("Mail Delivery Engine :: Dropping email to {} after unexpected error", delivery.email().getTo(), e);
+            }
+        }
+
+        private void deliver(MailDelivery delivery) {
+            EmailMessage email = delivery.email();
+            long start = System.nanoTime();
+            try {
+                send(email);
+            } catch (MessagingException first) {
+                // the session may have been dropped by the server, retry once on a fresh connection
+                disconnect();
+                try {
+                    send(email);
+                } catch (MessagingException e) {
+                    disconnect();
+                    if (SmtpFailures.isTransient(e) && retryScheduler.retry(delivery, e)) {
+                        log.warn("Mail Delivery Engine :: Transient failure sending email to {} (attempt {}), retry scheduled: {}",
+                                email.getTo(), delivery.attempt() + 1, e.getMessage());
+                        return;
+                    }
+                    mailJournal.complete(delivery);
+                    sendFailures.increment();
+                    log.error("Mail Delivery Engine :: Failed to send email to {}: {}", email.getTo(), e.getMessage());
+                    return;
+                }
+            }
+            mailJournal.complete(delivery);
+            sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.info("Mail Delivery Engine :: Email '{}' sent to: {}", email.getSubject(), email.getTo());
+        }
+
+        private void send(EmailMessage email) throws MessagingException {
+            if (transport == null || !transport.isConnected()) {
+                connect();
+            }
+            MimeMessage message = mailSender.createMimeMessage();
+            boolean multipart = email.getHtml() != null;
+            MimeMessageHelper helper = new MimeMessageHelper(message, multipart, StandardCharsets.UTF_8.name());
+            helper.setFrom(emailSender);
+            helper.setTo(email.getTo());
+            helper.setSubject(email.getSubject());
+            if (multipart) {
+                helper.setText(email.getBody(), email.getHtml());
+            } else {
+                helper.setText(email.getBody());
+            }
+            message.saveChanges();
+
+            transport.sendMessage(message, message.getAllRecipients());
+            if (++sentOnSession >= maxMessagesPerSession) {
+                disconnect();
+            }
+        }
+
+        private void connect() throws MessagingException {
+            String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+            transport = mailSender.getSession().getTransport(protocol);
+            transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+            sentOnSession = 0;
+        }
+
+        private void disconnect() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Mail Delivery Engine :: Error while closing smtp session: {}", e.getMessage());
+            }
+            transport = null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.reon.order_backend.email.delivery;
+
+import com.reon.order_backend.document.MailRetry;
+import com.reon.order_backend.email.EmailMessage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+write-ahead journal of accepted emails, kept in mail_retries next to the parked retries.
+an email is written before submit returns, so before the kafka offset of its event is committed, and removed once
+it was sent or given up on. while a node holds an email in memory (queue or retry wheel) it keeps pushing the
+row's dueAt ahead of now (the lease). if the node dies the lease runs out and the row is loaded by the retry
+scheduler of any node like a parked retry, so a crash re-sends emails instead of losing them.
+the retry scheduler claims rows due within persist-after, a held row is only safe from it while its lease,
+renewed every renew-interval, still reaches past that. the settings are checked against each other at startup.
+ */
+@Component
+@Slf4j
+public class MailJournal {
+    private static final int CHUNK_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration lease;
+    private final Set<ObjectId> held = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<ObjectId> completed = new ConcurrentLinkedQueue<>();
+
+    public MailJournal(MongoTemplate mongoTemplate,
+                       @Value("${mail.delivery.journal.lease}") Duration lease,
+                       @Value("${mail.delivery.journal.renew-interval}") long renewIntervalMillis,
+                       @Value("${mail.delivery.retry.persist-after}") Duration persistAfter) {
+        // just before a renewal the lease reaches only lease - renew-interval ahead, any less and a held email is sent twice
+        if (lease.minusMillis(renewIntervalMillis).compareTo(persistAfter) <= 0) {
+            throw new IllegalStateException("mail.delivery.journal.lease (" + lease + ") minus renew-interval ("
+                    + renewIntervalMillis + "ms) must be longer than mail.delivery.retry.persist-after (" + persistAfter + ")");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.lease = lease;
+    }
+
+    // one insert for all emails, the returned deliveries are held by this node
+    List<MailDelivery> record(List<EmailMessage> emails) {
+        LocalDateTime leaseUntil = leaseUntil();
+        List<MailRetry> rows = new ArrayList<>(emails.size());
+        for (EmailMessage email : emails) {
+            rows.add(toRow(email, leaseUntil));
+        }
+        mongoTemplate.insert(rows, MailRetry.class);
+        List<MailDelivery> deliveries = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ObjectId id = rows.get(i).getId();
+            held.add(id);
+            deliveries.add(new MailDelivery(emails.get(i), 0, id));
+        }
+        return deliveries;
+    }
+
+    /*
+    claims the oldest row due before the given time for this node, or returns null when there is none.
+    findAndModify moves its dueAt to the lease, so several nodes can drain the collection concurrently.
+     */
+    MailRetry claim(LocalDateTime dueBefore) {
+        Query due = new Query(Criteria.where("dueAt").lte(dueBefore))
+                .with(Sort.by("dueAt"));
+        MailRetry row = mongoTemplate.findAndModify(due, new Update().set("dueAt", leaseUntil()), MailRetry.class);
+        if (row != null) {
+            held.add(row.getId());
+        }
+        return row;
+    }
+
+    // the email was sent or failed for good, its row is removed with the next flush
+    void complete(MailDelivery delivery) {
+        if (held.remove(delivery.id())) {
+            completed.add(delivery.id());
+        }
+    }
+
+    // gives the row up (e.g. a retry due too far ahead to keep in memory), any node loads it again once it is due
+    void park(MailDelivery delivery, LocalDateTime dueAt, String lastError) {
+        parkAll(Map.of(delivery, dueAt), lastError);
+    }
+
+    void parkAll(Map<MailDelivery, LocalDateTime> dueAts, String lastError) {
+        if (dueAts.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MailRetry.class);
+        dueAts.forEach((delivery, dueAt) -> {
+            held.remove(delivery.id());
+            Update update = new Update().set("dueAt", dueAt).set("attempt", delivery.attempt());
+            if (lastError != null) {
+                update.set("lastError", lastError);
+            }
+            bulk.updateOne(new Query(Criteria.where("_id").is(delivery.id())), update);
+        });
+        bulk.execute();
+    }
+
+    // the engine could not take the email after all, nobody has seen it yet
+    void discard(List<MailDelivery> deliveries) {
+        List<ObjectId> ids = deliveries.stream().map(MailDelivery::id).toList();
+        ids.forEach(held::remove);
+        mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), MailRetry.class);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.delivery.journal.renew-interval}")
+    public void renewLeases() {
+        List<ObjectId> ids = new ArrayList<>(held);
+        LocalDateTime leaseUntil = leaseUntil();
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<ObjectId> chunk = ids.subList(from, Math.min(ids.size(), from + CHUNK_SIZE));
+            mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(chunk)),
+                    new Update().set("dueAt", leaseUntil), MailRetry.class);
+        }
+        if (!ids.isEmpty()) {
+            log.debug("Mail Journal :: Renewed the lease of {} emails", ids.size());
+        }
+    }
+
+    // deletes of sent emails are batched, a crash before the flush only re-sends them
+    @Scheduled(fixedDelayString = "${mail.delivery.journal.flush-interval}")
+    @PreDestroy
+    public void flush() {
+        List<ObjectId> ids = new ArrayList<>(CHUNK_SIZE);
+        ObjectId id;
+        while ((id = completed.poll()) != null) {
+            ids.add(id);
+            if (ids.size() == CHUNK_SIZE) {
+                delete(ids);
+                ids.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            delete(ids);
+        }
+    }
+
+    static EmailMessage toEmail(MailRetry row) {
+        return EmailMessage.builder()
+                .to(row.getTo())
+                .subject(row.getSubject())
+                .body(row.getBody())
+                .html(row.getHtml())
+                .build();
+    }
+
+    private void delete(List<ObjectId> ids) {
+        mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), MailRetry.class);
+    }
+
+    private LocalDateTime leaseUntil() {
+        return LocalDateTime.now().plus(lease);
+    }
+
+    private static MailRetry toRow(EmailMessage email, LocalDateTime dueAt) {
+        return MailRetry.builder()
+                .to(email.getTo())
+                .subject(email.getSubject())
+                .body(email.getBody())
+                .html(email.getHtml())
+                .dueAt(dueAt)
+                .build();
+    }
+}
@@ -0,0 +1,202 @@
+package com.reon.order_backend.email.delivery;
+
+import com.reon.order_backend.document.MailRetry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+delayed retries for transient smtp failures, kept in process instead of going back through kafka retry topics.
+retries due soon wait in a hierarchical timer wheel driven by a single ticker thread, retries due later
+(or beyond max-in-memory) are parked in the mail_retries collection and loaded back shortly before they are due.
+every delivery is backed by its MailJournal row, parking a retry in mongo only moves that row's dueAt.
+pending retries are parked on shutdown, so they survive a restart.
+ */
+@Component
+@Slf4j
+public class MailRetryScheduler {
+    private static final Duration REQUEUE_DELAY = Duration.ofSeconds(1);
+
+    private final MailJournal mailJournal;
+    private final Duration tick;
+    private final HierarchicalTimerWheel<MailDelivery> wheel;     // guarded by this
+    private final Counter retriesScheduled;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mail-retry-wheel");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Consumer<MailDelivery> sink;
+
+    @Value("${mail.delivery.retry.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${mail.delivery.retry.initial-delay}")
+    private Duration initialDelay;
+
+    @Value("${mail.delivery.retry.multiplier}")
+    private double multiplier;
+
+    @Value("${mail.delivery.retry.max-delay}")
+    private Duration maxDelay;
+
+    @Value("${mail.delivery.retry.persist-after}")
+    private Duration persistAfter;
+
+    @Value("${mail.delivery.retry.max-in-memory}")
+    private int maxInMemory;
+
+    @Value("${mail.delivery.retry.overflow-batch-size}")
+    private int overflowBatchSize;
+
+    public MailRetryScheduler(MailJournal mailJournal, MeterRegistry meterRegistry,
+                              @Value("${mail.delivery.retry.tick}") Duration tick,
+                              @Value("${mail.delivery.retry.wheel-size}") int wheelSize,
+                              @Value("${mail.delivery.retry.levels}") int levels) {
+        this.mailJournal = mailJournal;
+        this.tick = tick;
+        this.wheel = new HierarchicalTimerWheel<>(tick.toNanos(), wheelSize, levels, System.nanoTime());
+        Gauge.builder("mail.delivery.retries.pending", this, MailRetryScheduler::pendingInMemory)
+                .description("Email retries waiting in the in-memory retry wheel")
+                .register(meterRegistry);
+        this.retriesScheduled = Counter.builder("mail.delivery.retries")
+                .description("Email sends rescheduled after a transient smtp failure")
+                .register(meterRegistry);
+    }
+
+    // called once by the delivery engine, due retries are handed to the sink from the ticker thread
+    void start(Consumer<MailDelivery> sink) {
+        this.sink = sink;
+        ticker.scheduleAtFixedRate(this::advance, tick.toNanos(), tick.toNanos(), TimeUnit.NANOSECONDS);
+        log.info("Mail Retry Scheduler :: Started, retries beyond {} are kept in mongo", persistAfter);
+    }
+
+    /*
+    schedules the next attempt of a failed delivery with exponential backoff and jitter.
+    returns false when the delivery has used up its attempts.
+     */
+    boolean retry(MailDelivery failed, Exception failure) {
+        MailDelivery next = failed.nextAttempt();
+        if (next.attempt() >= maxAttempts) {
+            return false;
+        }
+        retriesScheduled.increment();
+        schedule(next, backoff(next.attempt()), String.valueOf(failure.getMessage()));
+        return true;
+    }
+
+    // the engine queue was full, try again a little later without counting an attempt
+    void requeueLater(MailDelivery delivery) {
+        defer(delivery, REQUEUE_DELAY.toNanos());
+    }
+
+    // hands the delivery back to the engine after the delay, e.g. once its rate limit slot comes up
+    void defer(MailDelivery delivery, long delayNanos) {
+        schedule(delivery, delayNanos, null);
+    }
+
+    // parks deliveries that could not be sent before shutdown, they are picked up by the next start
+    void persist(List<MailDelivery> deliveries) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<MailDelivery, LocalDateTime> dueAts = new LinkedHashMap<>();
+        deliveries.forEach(delivery -> dueAts.put(delivery, now));
+        mailJournal.parkAll(dueAts, null);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.delivery.retry.overflow-poll-interval}")
+    public void loadOverflow() {
+        if (sink == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int loaded = 0;
+        while (loaded < overflowBatchSize && pendingInMemory() < maxInMemory) {
+            // parked retries, and emails of a node whose journal lease ran out
+            MailRetry retry = mailJournal.claim(now.plus(persistAfter));
+            if (retry == null) {
+                break;
+            }
+            long delayNanos = Math.max(0, Duration.between(now, retry.getDueAt()).toNanos());
+            MailDelivery delivery = new MailDelivery(MailJournal.toEmail(retry), retry.getAttempt(), retry.getId());
+            synchronized (this) {
+                wheel.schedule(delivery, System.nanoTime() + delayNanos);
+            }
+            loaded++;
+        }
+        if (loaded > 0) {
+            log.info("Mail Retry Scheduler :: Loaded {} email retries from mongo", loaded);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+        long nowNanos = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        Map<MailDelivery, LocalDateTime> pending = new LinkedHashMap<>();
+        synchronized (this) {
+            wheel.drain((delivery, deadlineNanos) ->
+                    pending.put(delivery, now.plusNanos(Math.max(0, deadlineNanos - nowNanos))));
+        }
+        if (!pending.isEmpty()) {
+            mailJournal.parkAll(pending, null);
+            log.info("Mail Retry Scheduler :: Persisted {} pending email retries", pending.size());
+        }
+    }
+
+    private void schedule(MailDelivery delivery, long delayNanos, String lastError) {
+        if (delayNanos < persistAfter.toNanos()) {
+            synchronized (this) {
+                if (wheel.size() < maxInMemory && wheel.schedule(delivery, System.nanoTime() + delayNanos)) {
+                    return;
+                }
+            }
+        }
+        mailJournal.park(delivery, LocalDateTime.now().plusNanos(delayNanos), lastError);
+    }
+
+    private void advance() {
+        List<MailDelivery> due = new ArrayList<>();
+        synchronized (this) {
+            wheel.advance(System.nanoTime(), due::add);
+        }
+        for (MailDelivery delivery : due) {
+            try {
+                sink.accept(delivery);
+            } catch (RuntimeException e) {
+                // the ticker must survive, an exception would cancel its schedule
+                log.error("Mail Retry Scheduler :: Failed to requeue email to {}: {}",
+                        delivery.email().getTo(), e.getMessage());
+            }
+        }
+    }
+
+    // equal jitter: half of the exponential delay is fixed, the other half random
+    private long backoff(int attempt) {
+        double exponential = initialDelay.toNanos() * Math.pow(multiplier, attempt - 1);
+        long delay = (long) Math.min(exponential, maxDelay.toNanos());
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private synchronized int pendingInMemory() {
+        return wheel.size();
+    }
+}
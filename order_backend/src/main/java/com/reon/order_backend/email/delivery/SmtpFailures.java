@@ -0,0 +1,50 @@
+package com.reon.order_backend.email.delivery;
+
+import jakarta.mail.MessagingException;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.eclipse.angus.mail.util.MailConnectException;
+
+import java.io.IOException;
+
+/*
+tells transient smtp failures (4xx replies, dropped or refused connections) from permanent ones
+(5xx replies, authentication, malformed messages). only transient failures are worth retrying.
+ */
+final class SmtpFailures {
+
+    private SmtpFailures() {
+    }
+
+    static boolean isTransient(Exception failure) {
+        Throwable current = failure;
+        int depth = 0;
+        while (current != null && depth++ < 10) {
+            int code = returnCode(current);
+            if (code > 0) {
+                return code >= 400 && code < 500;
+            }
+            if (current instanceof MailConnectException || current instanceof IOException) {
+                return true;
+            }
+            current = current instanceof MessagingException messaging && messaging.getNextException() != null
+                    ? messaging.getNextException()
+                    : current.getCause();
+        }
+        return false;
+    }
+
+    private static int returnCode(Throwable failure) {
+        if (failure instanceof SMTPSendFailedException e) {
+            return e.getReturnCode();
+        }
+        if (failure instanceof SMTPAddressFailedException e) {
+            return e.getReturnCode();
+        }
+        if (failure instanceof SMTPSenderFailedException e) {
+            return e.getReturnCode();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,98 @@
+package com.reon.order_backend.email.template;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+a template precompiled into literal and placeholder segments, so rendering is a single pass of appends.
+placeholders are written as {{name}}; in html templates their values are escaped, {{{name}}} inserts raw markup.
+ */
+public final class EmailTemplate {
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private final List<Segment> segments;
+    private final Variant variant;
+
+    public enum Variant {
+        TEXT(".txt"),
+        HTML(".html");
+
+        private final String extension;
+
+        Variant(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    private EmailTemplate(List<Segment> segments, Variant variant) {
+        this.segments = segments;
+        this.variant = variant;
+    }
+
+    public static EmailTemplate compile(String source, Variant variant) {
+        List<Segment> segments = new ArrayList<>();
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                segments.add(Segment.literal(source.substring(position)));
+                break;
+            }
+            boolean raw = source.startsWith("{{{", open);
+            String closing = raw ? "}}}" : "}}";
+            int close = source.indexOf(closing, open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            if (open > position) {
+                segments.add(Segment.literal(source.substring(position, open)));
+            }
+            String name = source.substring(open + (raw ? 3 : 2), close).trim();
+            segments.add(Segment.placeholder(name, raw || variant == Variant.TEXT));
+            position = close + closing.length();
+        }
+        return new EmailTemplate(List.copyOf(segments), variant);
+    }
+
+    // renders into a per-thread buffer that is reused across calls, only the resulting string is allocated.
+    public String render(Function<String, Object> values) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        for (Segment segment : segments) {
+            if (segment.placeholder() == null) {
+                buffer.append(segment.literal());
+                continue;
+            }
+            Object value = values.apply(segment.placeholder());
+            String text = value == null ? "" : value.toString();
+            buffer.append(segment.raw() ? text : HtmlUtils.htmlEscape(text));
+        }
+        String rendered = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+        return rendered;
+    }
+
+    public Variant variant() {
+        return variant;
+    }
+
+    private record Segment(String literal, String placeholder, boolean raw) {
+        static Segment literal(String text) {
+            return new Segment(text, null, true);
+        }
+
+        static Segment placeholder(String name, boolean raw) {
+            return new Segment(null, name, raw);
+        }
+    }
+}
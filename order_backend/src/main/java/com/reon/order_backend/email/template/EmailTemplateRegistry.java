@@ -0,0 +1,85 @@
+package com.reon.order_backend.email.template;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+loads every email template once, compiles it and keeps it in memory.
+templates live under email.templates.location as <name>.txt (plain text, required) and <name>.html (optional).
+pointing the location at a directory (file:...) allows editing templates without a redeploy,
+changed files are picked up by the periodic refresh.
+ */
+@Component
+@Slf4j
+public class EmailTemplateRegistry {
+    private final ResourceLoader resourceLoader;
+    private final Map<String, Loaded> templates = new ConcurrentHashMap<>();
+
+    @Value("${email.templates.location}")
+    private String location;
+
+    public EmailTemplateRegistry(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @PostConstruct
+    void verifyBaseTemplates() {
+        for (String name : new String[]{"order-placed", "order-status", "order-status-summary", "order-status-summary-entry"}) {
+            if (find(name, EmailTemplate.Variant.TEXT).isEmpty()) {
+                throw new IllegalStateException("Missing email template: " + location + name + ".txt");
+            }
+        }
+    }
+
+    public Optional<EmailTemplate> find(String name, EmailTemplate.Variant variant) {
+        return Optional.ofNullable(templates.computeIfAbsent(name + variant.extension(), key -> load(key, variant)).template());
+    }
+
+    @Scheduled(fixedDelayString = "${email.templates.refresh-interval}")
+    public void refresh() {
+        templates.forEach((key, loaded) -> {
+            long lastModified = lastModified(resourceLoader.getResource(location + key));
+            if (lastModified != loaded.lastModified()) {
+                log.info("Email Template Registry :: Reloading changed template: {}", key);
+                templates.put(key, load(key, loaded.variant()));
+            }
+        });
+    }
+
+    // a missing template is cached as well (with a null template), so lookups for optional variants stay cheap.
+    private Loaded load(String key, EmailTemplate.Variant variant) {
+        Resource resource = resourceLoader.getResource(location + key);
+        if (!resource.exists()) {
+            return new Loaded(null, variant, -1);
+        }
+        try {
+            String source = resource.getContentAsString(StandardCharsets.UTF_8);
+            return new Loaded(EmailTemplate.compile(source, variant), variant, lastModified(resource));
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Email Template Registry :: Could not load template {}: {}", key, e.getMessage());
+            return new Loaded(null, variant, -1);
+        }
+    }
+
+    private long lastModified(Resource resource) {
+        try {
+            return resource.exists() ? resource.lastModified() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private record Loaded(EmailTemplate template, EmailTemplate.Variant variant, long lastModified) {
+    }
+}
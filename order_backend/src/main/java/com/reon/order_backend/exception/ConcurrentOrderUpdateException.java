@@ -0,0 +1,7 @@
+package com.reon.order_backend.exception;
+
+public class ConcurrentOrderUpdateException extends RuntimeException {
+    public ConcurrentOrderUpdateException(String message) {
+        super(message);
+    }
+}
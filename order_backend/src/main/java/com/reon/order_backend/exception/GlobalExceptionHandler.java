@@ -54,4 +54,36 @@ public class GlobalExceptionHandler {
         error.put("order", "Order not cancellable");
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(ConcurrentOrderUpdateException.class)
+    public ResponseEntity<Map<String, String>> handleConcurrentOrderUpdateException(ConcurrentOrderUpdateException exception) {
+        log.info("order conflict exception :: {}", exception.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("order", "Order is being updated concurrently, try again.");
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, String>> handleCursorException(InvalidCursorException exception) {
+        log.info("cursor exception :: {}", exception.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("cursor", "Invalid page cursor");
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ReplayJobNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleReplayJobException(ReplayJobNotFoundException exception) {
+        log.info("replay job exception :: {}", exception.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("replayJob", "Replay job not found");
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidAnalyticsRangeException.class)
+    public ResponseEntity<Map<String, String>> handleAnalyticsRangeException(InvalidAnalyticsRangeException exception) {
+        log.info("analytics range exception :: {}", exception.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("range", exception.getMessage());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
 }
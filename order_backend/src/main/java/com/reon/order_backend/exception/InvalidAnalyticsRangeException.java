@@ -0,0 +1,7 @@
+package com.reon.order_backend.exception;
+
+public class InvalidAnalyticsRangeException extends RuntimeException {
+    public InvalidAnalyticsRangeException(String message) {
+        super(message);
+    }
+}
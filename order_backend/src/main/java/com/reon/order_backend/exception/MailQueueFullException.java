@@ -0,0 +1,19 @@
+package com.reon.order_backend.exception;
+
+public class MailQueueFullException extends RuntimeException {
+    // emails of the submitted batch that were queued before it filled up
+    private final int accepted;
+
+    public MailQueueFullException(String message) {
+        this(message, 0);
+    }
+
+    public MailQueueFullException(String message, int accepted) {
+        super(message);
+        this.accepted = accepted;
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+}
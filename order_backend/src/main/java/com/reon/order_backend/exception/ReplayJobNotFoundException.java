@@ -0,0 +1,7 @@
+package com.reon.order_backend.exception;
+
+public class ReplayJobNotFoundException extends RuntimeException {
+    public ReplayJobNotFoundException(String message) {
+        super(message);
+    }
+}
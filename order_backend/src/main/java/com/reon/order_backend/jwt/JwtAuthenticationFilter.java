@@ -1,6 +1,7 @@
 package com.reon.order_backend.jwt;
 
 import com.reon.order_backend.service.impl.CustomUserDetailService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -8,7 +9,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -22,6 +22,7 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtils jwtUtils;
     private final CustomUserDetailService customUserDetailService;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
 
     public JwtAuthenticationFilter(JwtUtils jwtUtils, CustomUserDetailService customUserDetailService) {
         this.jwtUtils = jwtUtils;
@@ -33,15 +34,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = jwtUtils.getJwtFromHeader(request);
-            if (jwt != null && jwtUtils.validateToken(jwt)) {
-                String username = jwtUtils.getUsernameFromToken(jwt);
+            Claims claims = jwt != null ? jwtUtils.verifyToken(jwt) : null;
+            if (claims != null) {
+                String username = claims.getSubject();
 
-                UserDetails userDetails = customUserDetailService.loadUserByUsername(username);
+                // tokens carry userId and roles, so only legacy tokens need a (cached) user lookup.
+                UserDetails userDetails = jwtUtils.hasPrincipalClaims(claims)
+                        ? jwtUtils.principalFromClaims(claims)
+                        : customUserDetailService.loadUserByUsername(username);
                 if (username.equals(userDetails.getUsername())) {
                     UsernamePasswordAuthenticationToken authentication = new
                             UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                    log.info("Authenticated User: {} with role: {}", username, userDetails.getAuthorities());
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    log.debug("Authenticated User: {} with role: {}", username, userDetails.getAuthorities());
+                    authentication.setDetails(detailsSource.buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
             }
@@ -1,31 +1,69 @@
 package com.reon.order_backend.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.reon.order_backend.document.User;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Date;
-import java.util.stream.Collectors;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
 
 @Component
 @Slf4j
 public class JwtUtils {
+    private static final String USER_ID_CLAIM = "userId";
+    private static final String ROLES_CLAIM = "roles";
+
     @Value("${jwt.secret-key}")
     private String jwtSecret;
 
     @Value("${jwt.expiration-time}")
     private Long expirationTime;
 
+    @Value("${jwt.verified-cache.maximum-size}")
+    private long verifiedCacheSize;
+
+    // key, parser and cache are built once, they are immutable and thread safe.
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+    private Cache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64URL.decode(jwtSecret));
+        jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        // a verified token is remembered (by digest) only until its own expiry.
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(Expiry.creating((String digest, Claims claims) -> Duration.ofMillis(
+                        Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()))))
+                .build();
+    }
+
     public String getJwtFromHeader(HttpServletRequest request) {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
@@ -42,43 +80,69 @@ public class JwtUtils {
     }
 
     public String generateToken(User user) {
-        String email = user.getEmail();
-        String roles = user
-                .getAuthorities()
+        List<String> roles = user
+                .getRoles()
                 .stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.joining(", "));
+                .map(User.Role::name)
+                .toList();
+        Date issuedAt = new Date();
         return Jwts.builder()
-                .subject(email)
-                .claim("roles", roles)
-                .issuedAt(new Date())
-                .expiration(new Date((new Date().getTime() + expirationTime)))
-                .signWith(key())
+                .subject(user.getEmail())
+                .claim(USER_ID_CLAIM, user.getId().toHexString())
+                .claim(ROLES_CLAIM, roles)
+                .issuedAt(issuedAt)
+                .expiration(new Date(issuedAt.getTime() + expirationTime))
+                .signWith(signingKey)
                 .compact();
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64URL.decode(jwtSecret));
+    /*
+    verifies the signature and expiry of the token exactly once and returns its claims.
+    returns null when the token is invalid or expired.
+     */
+    public Claims verifyToken(String token) {
+        String digest = digest(token);
+        Claims claims = verifiedTokens.getIfPresent(digest);
+        if (claims != null) {
+            return claims;
+        }
+        try {
+            claims = jwtParser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Jwt Utils :: Token rejected: {}", e.getMessage());
+            return null;
+        }
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(digest, claims);
+        }
+        return claims;
+    }
+
+    // tokens issued before userId/roles were added to the claims have to be resolved from the database.
+    public boolean hasPrincipalClaims(Claims claims) {
+        return claims.get(USER_ID_CLAIM) instanceof String && claims.get(ROLES_CLAIM) instanceof Collection<?>;
     }
 
-    public String getUsernameFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build().parseSignedClaims(token)
-                .getPayload().getSubject();
+    // builds a lightweight principal (id, email and roles only) from already verified claims.
+    public User principalFromClaims(Claims claims) {
+        Set<User.Role> roles = EnumSet.noneOf(User.Role.class);
+        for (Object role : (Collection<?>) claims.get(ROLES_CLAIM)) {
+            roles.add(User.Role.valueOf(role.toString()));
+        }
+        return User.builder()
+                .id(new ObjectId(claims.get(USER_ID_CLAIM, String.class)))
+                .email(claims.getSubject())
+                .roles(roles)
+                .accountEnabled(true)
+                .build();
     }
 
-    public boolean validateToken(String token) {
+    private String digest(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith((SecretKey) key())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        } catch (Exception e) {
-            return false;
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
     }
-}
\ No newline at end of file
+}
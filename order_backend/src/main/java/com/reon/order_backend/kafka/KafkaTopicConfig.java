@@ -7,11 +7,15 @@ import org.springframework.kafka.config.TopicBuilder;
 
 @Configuration
 public class KafkaTopicConfig {
+    public static final String ORDER_EVENT = "order_event";
+    public static final String ORDER_UPDATE_EVENT = "order_update_event";
+    public static final int PARTITIONS = 3;
+
     @Bean
     public NewTopic orderTopic() {
         return TopicBuilder
-                .name("order_event")
-                .partitions(3)
+                .name(ORDER_EVENT)
+                .partitions(PARTITIONS)
                 .replicas(1)
                 .build();
     }
@@ -19,8 +23,8 @@ public class KafkaTopicConfig {
     @Bean
     public NewTopic orderUpdateTopic() {
         return TopicBuilder
-                .name("order_update_event")
-                .partitions(3)
+                .name(ORDER_UPDATE_EVENT)
+                .partitions(PARTITIONS)
                 .replicas(1)
                 .build();
     }
@@ -0,0 +1,36 @@
+package com.reon.order_backend.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/*
+partitions of a topic for listeners with manual assignment, e.g. "#{@partitionFinder.partitions('topic')}".
+falls back to the partition count declared in KafkaTopicConfig while the topic does not exist yet.
+ */
+@Component
+@Slf4j
+public class PartitionFinder {
+    private final ConsumerFactory<Object, Object> consumerFactory;
+
+    public PartitionFinder(ConsumerFactory<Object, Object> consumerFactory) {
+        this.consumerFactory = consumerFactory;
+    }
+
+    public String[] partitions(String topic) {
+        try (Consumer<Object, Object> consumer = consumerFactory.createConsumer()) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(topic);
+            if (partitions != null && !partitions.isEmpty()) {
+                return partitions.stream().map(info -> String.valueOf(info.partition())).toArray(String[]::new);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Partition Finder :: Could not read the partitions of {}: {}", topic, e.getMessage());
+        }
+        return IntStream.range(0, KafkaTopicConfig.PARTITIONS).mapToObj(String::valueOf).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,37 @@
+package com.reon.order_backend.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+import org.springframework.kafka.support.KafkaUtils;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/*
+replayed failed events go back to the shared order topics, but they failed in one consumer group only.
+the replay stamps that group into the REPLAY_TARGET_HEADER and every other group discards the record here,
+so tracking, summary and analytics do not see the event a second time.
+spring boot applies the bean to every listener container factory. only records on the main topics are
+checked, retry topics are read by the target group alone (under a suffixed group id).
+ */
+@Component
+public class ReplayTargetFilter implements RecordFilterStrategy<Object, Object> {
+    public static final String REPLAY_TARGET_HEADER = "order-replay-target";
+
+    private static final Set<String> SHARED_TOPICS = Set.of(KafkaTopicConfig.ORDER_EVENT, KafkaTopicConfig.ORDER_UPDATE_EVENT);
+
+    // true discards the record
+    @Override
+    public boolean filter(ConsumerRecord<Object, Object> consumerRecord) {
+        if (!SHARED_TOPICS.contains(consumerRecord.topic())) {
+            return false;
+        }
+        Header target = consumerRecord.headers().lastHeader(REPLAY_TARGET_HEADER);
+        if (target == null) {
+            return false;
+        }
+        return !new String(target.value(), StandardCharsets.UTF_8).equals(KafkaUtils.getConsumerGroupId());
+    }
+}
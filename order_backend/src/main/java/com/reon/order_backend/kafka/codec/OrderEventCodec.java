@@ -0,0 +1,215 @@
+package com.reon.order_backend.kafka.codec;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.utils.ByteUtils;
+import org.bson.types.ObjectId;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+binary encoding of order events:
+  magic byte | schema version | presence bitmask, one bit per field | the present fields in declaration order
+object ids are their raw 12 bytes, times are epoch seconds (utc) and nanos, counts and lengths are varints,
+strings carry length + 1 so that 0 stands for null, and the status is its ordinal.
+the schemas are embedded: every version ever written keeps its decoder here, so consumers read older events.
+a new field or a reordered status enum means a new version, never a change to an existing one.
+ */
+public final class OrderEventCodec {
+    // json never starts with a zero byte, so the first byte tells the two formats apart
+    public static final byte MAGIC = 0x00;
+    static final byte V1 = 1;
+    static final byte V2 = 2;     // adds previousStatus
+
+    private static final int ORDER_ID = 0;
+    private static final int USER_ID = 1;
+    private static final int EMAIL = 2;
+    private static final int EVENT_CREATION_TIME = 3;
+    private static final int ITEMS = 4;
+    private static final int AMOUNT = 5;
+    private static final int STATUS = 6;
+    private static final int SEQUENCE = 7;
+    private static final int PREVIOUS_STATUS = 8;
+
+    private OrderEventCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 1 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(OrderEventDTO event) {
+        int present = presence(event);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 16 * sizeOf(event.getItems()));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeByte(V2);
+            ByteUtils.writeUnsignedVarint(present, out);
+            if (isSet(present, ORDER_ID)) {
+                out.write(event.getOrderId().toByteArray());
+            }
+            if (isSet(present, USER_ID)) {
+                out.write(event.getUserId().toByteArray());
+            }
+            if (isSet(present, EMAIL)) {
+                writeString(event.getEmail(), out);
+            }
+            if (isSet(present, EVENT_CREATION_TIME)) {
+                LocalDateTime time = event.getEventCreationTime();
+                ByteUtils.writeVarlong(time.toEpochSecond(ZoneOffset.UTC), out);
+                ByteUtils.writeUnsignedVarint(time.getNano(), out);
+            }
+            if (isSet(present, ITEMS)) {
+                ByteUtils.writeUnsignedVarint(event.getItems().size(), out);
+                for (String item : event.getItems()) {
+                    writeString(item, out);
+                }
+            }
+            if (isSet(present, AMOUNT)) {
+                out.writeDouble(event.getAmount());
+            }
+            if (isSet(present, STATUS)) {
+                ByteUtils.writeUnsignedVarint(event.getStatus().ordinal(), out);
+            }
+            if (isSet(present, SEQUENCE)) {
+                ByteUtils.writeVarlong(event.getSequence(), out);
+            }
+            if (isSet(present, PREVIOUS_STATUS)) {
+                ByteUtils.writeUnsignedVarint(event.getPreviousStatus().ordinal(), out);
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Could not encode order event " + event.getOrderId(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static OrderEventDTO decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new SerializationException("Not a binary order event");
+        }
+        ByteBuffer in = ByteBuffer.wrap(data, 2, data.length - 2);
+        try {
+            return switch (data[1]) {
+                case V1 -> decodeV1(in);
+                case V2 -> decodeV2(in);
+                default -> throw new SerializationException("Unknown order event schema version: " + data[1]);
+            };
+        } catch (RuntimeException e) {
+            if (e instanceof SerializationException serializationException) {
+                throw serializationException;
+            }
+            throw new SerializationException("Corrupt order event of schema version " + data[1], e);
+        }
+    }
+
+    private static OrderEventDTO decodeV1(ByteBuffer in) {
+        return decodeV1Fields(ByteUtils.readUnsignedVarint(in), in);
+    }
+
+    // v1 fields followed by previousStatus
+    private static OrderEventDTO decodeV2(ByteBuffer in) {
+        int present = ByteUtils.readUnsignedVarint(in);
+        OrderEventDTO event = decodeV1Fields(present, in);
+        if (isSet(present, PREVIOUS_STATUS)) {
+            event.setPreviousStatus(Order.Status.values()[ByteUtils.readUnsignedVarint(in)]);
+        }
+        return event;
+    }
+
+    private static OrderEventDTO decodeV1Fields(int present, ByteBuffer in) {
+        OrderEventDTO event = new OrderEventDTO();
+        if (isSet(present, ORDER_ID)) {
+            event.setOrderId(readObjectId(in));
+        }
+        if (isSet(present, USER_ID)) {
+            event.setUserId(readObjectId(in));
+        }
+        if (isSet(present, EMAIL)) {
+            event.setEmail(readString(in));
+        }
+        if (isSet(present, EVENT_CREATION_TIME)) {
+            long seconds = ByteUtils.readVarlong(in);
+            int nanos = ByteUtils.readUnsignedVarint(in);
+            event.setEventCreationTime(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        }
+        if (isSet(present, ITEMS)) {
+            int count = ByteUtils.readUnsignedVarint(in);
+            List<String> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(readString(in));
+            }
+            event.setItems(items);
+        }
+        if (isSet(present, AMOUNT)) {
+            event.setAmount(in.getDouble());
+        }
+        if (isSet(present, STATUS)) {
+            event.setStatus(Order.Status.values()[ByteUtils.readUnsignedVarint(in)]);
+        }
+        if (isSet(present, SEQUENCE)) {
+            event.setSequence(ByteUtils.readVarlong(in));
+        }
+        return event;
+    }
+
+    private static int presence(OrderEventDTO event) {
+        int present = 0;
+        present |= bit(ORDER_ID, event.getOrderId());
+        present |= bit(USER_ID, event.getUserId());
+        present |= bit(EMAIL, event.getEmail());
+        present |= bit(EVENT_CREATION_TIME, event.getEventCreationTime());
+        present |= bit(ITEMS, event.getItems());
+        present |= bit(AMOUNT, event.getAmount());
+        present |= bit(STATUS, event.getStatus());
+        present |= bit(SEQUENCE, event.getSequence());
+        present |= bit(PREVIOUS_STATUS, event.getPreviousStatus());
+        return present;
+    }
+
+    private static int bit(int field, Object value) {
+        return value != null ? 1 << field : 0;
+    }
+
+    private static boolean isSet(int present, int field) {
+        return (present & (1 << field)) != 0;
+    }
+
+    private static int sizeOf(List<String> items) {
+        return items != null ? items.size() : 0;
+    }
+
+    private static void writeString(String value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            ByteUtils.writeUnsignedVarint(0, out);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        ByteUtils.writeUnsignedVarint(utf8.length + 1, out);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = ByteUtils.readUnsignedVarint(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static ObjectId readObjectId(ByteBuffer in) {
+        byte[] id = new byte[12];
+        in.get(id);
+        return new ObjectId(id);
+    }
+}
@@ -0,0 +1,55 @@
+package com.reon.order_backend.kafka.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.bson.types.ObjectId;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+
+/*
+value serializer of the producers. order events are written with the binary codec or as json, depending on the
+"order.event.format" producer property; anything else is always written as json.
+ */
+public class OrderEventSerializer implements Serializer<Object> {
+    public static final String FORMAT_CONFIG = "order.event.format";
+
+    private final JsonSerializer<Object> json = new JsonSerializer<>(objectMapper());
+    private boolean binary;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        Object format = configs.get(FORMAT_CONFIG);
+        binary = format != null && "binary".equalsIgnoreCase(format.toString());
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (binary && data instanceof OrderEventDTO event) {
+            return OrderEventCodec.encode(event);
+        }
+        return headers != null ? json.serialize(topic, headers, data) : json.serialize(topic, data);
+    }
+
+    // object ids as hex strings: the default bean form keeps only the timestamp and loses the rest of the id
+    private static ObjectMapper objectMapper() {
+        return JacksonUtils.enhancedObjectMapper()
+                .registerModule(new SimpleModule().addSerializer(ObjectId.class, ToStringSerializer.instance));
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reon.order_backend.document.ProcessedEvent;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/*
+idempotency layer for the order event consumers. redeliveries (rebalances, retries after a partial failure)
+are caught by an in-memory lru of recently processed events without touching mongo; the processed_events
+collection is the durable record behind it, its unique _id decides when two deliveries race or the lru
+no longer remembers the event.
+ */
+@Component
+@Slf4j
+public class EventDeduplicator {
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, Boolean> recent;
+
+    public EventDeduplicator(MongoTemplate mongoTemplate,
+                             @Value("${consumer.dedup.maximum-size}") long maximumSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /*
+    claims the event for the given consumer, returns false when it has been processed before.
+    a claimed event must be released when processing fails, otherwise its retry would be skipped.
+     */
+    public boolean tryAcquire(String consumer, OrderEventDTO event) {
+        String id = consumer + ":" + event.eventKey();
+        if (recent.getIfPresent(id) != null) {
+            return false;
+        }
+        try {
+            mongoTemplate.insert(new ProcessedEvent(id, LocalDateTime.now()));
+        } catch (DuplicateKeyException e) {
+            recent.put(id, Boolean.TRUE);
+            return false;
+        }
+        recent.put(id, Boolean.TRUE);
+        return true;
+    }
+
+    public void release(String consumer, OrderEventDTO event) {
+        String id = consumer + ":" + event.eventKey();
+        recent.invalidate(id);
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(id)), ProcessedEvent.class);
+        log.debug("Event Deduplicator :: Released event: {}", id);
+    }
+}
@@ -0,0 +1,61 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.reon.order_backend.document.FailedEvent;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.kafka.KafkaConsumerConfig;
+import com.reon.order_backend.repository.FailedEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/*
+persists records that reached a dead letter topic, together with the failure recorded in the dlt headers.
+the topic stored is the original one (dlt topic minus its suffix) so that a replay publishes to the right place,
+the consumer group is the one that failed, a replay is only delivered to that group.
+ */
+@Component
+@Slf4j
+public class FailedEventRecorder {
+    private final FailedEventRepository failedEventRepository;
+
+    public FailedEventRecorder(FailedEventRepository failedEventRepository) {
+        this.failedEventRepository = failedEventRepository;
+    }
+
+    public void record(ConsumerRecord<?, OrderEventDTO> dltRecord, String consumerGroup) {
+        String errorMessage = header(dltRecord, KafkaHeaders.DLT_EXCEPTION_MESSAGE);
+        String exceptionClass = header(dltRecord, KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN);
+        if (exceptionClass == null) {
+            exceptionClass = header(dltRecord, KafkaHeaders.DLT_EXCEPTION_FQCN);
+        }
+        log.error("Order event failed after retries ({}: {}): {}", exceptionClass, errorMessage, dltRecord.value());
+
+        FailedEvent failedEvent = FailedEvent.builder()
+                .topic(originalTopic(dltRecord.topic()))
+                .consumerGroup(consumerGroup)
+                .payload(dltRecord.value())
+                .errorMessage(errorMessage != null ? errorMessage : "")
+                .exceptionClass(exceptionClass)
+                .failedAt(LocalDateTime.now())
+                .build();
+        failedEventRepository.save(failedEvent);
+    }
+
+    private static String originalTopic(String dltTopic) {
+        return dltTopic.endsWith(KafkaConsumerConfig.DLT_SUFFIX)
+                ? dltTopic.substring(0, dltTopic.length() - KafkaConsumerConfig.DLT_SUFFIX.length())
+                : dltTopic;
+    }
+
+    private static String header(ConsumerRecord<?, ?> dltRecord, String name) {
+        Header header = dltRecord.headers().lastHeader(name);
+        return header != null && header.value() != null
+                ? new String(header.value(), StandardCharsets.UTF_8)
+                : null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.reon.order_backend.analytics.OrderRollupBuffer;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.kafka.KafkaTopicConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/*
+feeds the analytics rollups. its own consumer group, status events are used as they are, no order lookup.
+a redelivered event would be counted twice in the rollups, so every event goes through the deduplicator first.
+ */
+@Component
+@Slf4j
+public class OrderAnalyticsConsumer {
+    private static final String DEDUP_NAME = "analytics";
+
+    private final OrderRollupBuffer orderRollupBuffer;
+    private final EventDeduplicator eventDeduplicator;
+
+    public OrderAnalyticsConsumer(OrderRollupBuffer orderRollupBuffer, EventDeduplicator eventDeduplicator) {
+        this.orderRollupBuffer = orderRollupBuffer;
+        this.eventDeduplicator = eventDeduplicator;
+    }
+
+    @KafkaListener(topics = KafkaTopicConfig.ORDER_EVENT, groupId = "grp_order_analytics")
+    public void orderPlacedAnalyticsConsumer(OrderEventDTO orderEventDTO) {
+        log.debug("Order Analytics Consumer :: Order placed: {}", orderEventDTO.getOrderId());
+        apply(orderEventDTO, orderRollupBuffer::recordPlaced);
+    }
+
+    @KafkaListener(topics = KafkaTopicConfig.ORDER_UPDATE_EVENT, groupId = "grp_order_analytics")
+    public void orderStatusAnalyticsConsumer(OrderEventDTO orderEventDTO) {
+        log.debug("Order Analytics Consumer :: Status {} for order: {}", orderEventDTO.getStatus(), orderEventDTO.getOrderId());
+        apply(orderEventDTO, orderRollupBuffer::recordStatus);
+    }
+
+    private void apply(OrderEventDTO event, Consumer<OrderEventDTO> handler) {
+        if (!eventDeduplicator.tryAcquire(DEDUP_NAME, event)) {
+            log.debug("Order Analytics Consumer :: Skipping duplicate event: {}", event.eventKey());
+            return;
+        }
+        try {
+            handler.accept(event);
+        } catch (RuntimeException e) {
+            eventDeduplicator.release(DEDUP_NAME, event);
+            throw e;
+        }
+    }
+}
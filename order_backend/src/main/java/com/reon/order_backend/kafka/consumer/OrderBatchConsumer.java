@@ -0,0 +1,210 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.email.EmailMessage;
+import com.reon.order_backend.email.EmailService;
+import com.reon.order_backend.email.OrderEmailComposer;
+import com.reon.order_backend.exception.MailQueueFullException;
+import com.reon.order_backend.kafka.KafkaConsumerConfig;
+import com.reon.order_backend.kafka.KafkaTopicConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/*
+batch mode (consumer.mode=batch): each call receives a poll's worth of events. events are grouped by
+recipient and order, the emails of the whole batch are rendered up front and handed to the mail layer at once.
+when an email can not be rendered or queued, the batch fails at the first record whose email was not queued
+(BatchListenerFailedException): kafka commits the records before it and redelivers the rest. events whose email
+was queued keep their dedup key and are skipped on redelivery, only the others are released.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "consumer.mode", havingValue = "batch")
+public class OrderBatchConsumer {
+
+    private final EmailService emailService;
+    private final OrderEmailComposer orderEmailComposer;
+    private final FailedEventRecorder failedEventRecorder;
+    private final OrderSequenceTracker orderSequenceTracker;
+    private final StatusNotificationCoalescer notificationCoalescer;
+    private final EventDeduplicator eventDeduplicator;
+    private final OrderSnapshotCache orderSnapshotCache;
+
+    public OrderBatchConsumer(EmailService emailService, OrderEmailComposer orderEmailComposer,
+                              FailedEventRecorder failedEventRecorder,
+                              OrderSequenceTracker orderSequenceTracker,
+                              StatusNotificationCoalescer notificationCoalescer,
+                              EventDeduplicator eventDeduplicator,
+                              OrderSnapshotCache orderSnapshotCache) {
+        this.emailService = emailService;
+        this.orderEmailComposer = orderEmailComposer;
+        this.failedEventRecorder = failedEventRecorder;
+        this.orderSequenceTracker = orderSequenceTracker;
+        this.notificationCoalescer = notificationCoalescer;
+        this.eventDeduplicator = eventDeduplicator;
+        this.orderSnapshotCache = orderSnapshotCache;
+    }
+
+    @KafkaListener(
+            topics = KafkaTopicConfig.ORDER_EVENT,
+            groupId = OrderStatusConsumer.GROUP_ID,
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void orderPlaceBatchConsumer(List<OrderEventDTO> events) {
+        log.info("Order Batch Consumer :: Received {} order placed events", events.size());
+        events.forEach(orderSnapshotCache::remember);
+        List<OrderEventDTO> fresh = acquire(events);
+        // one email per event, in record order
+        List<List<OrderEventDTO>> sources = fresh.stream().map(List::of).toList();
+        send(events, sources, source -> orderEmailComposer.orderPlaced(source.get(0)));
+    }
+
+    @KafkaListener(
+            topics = KafkaTopicConfig.ORDER_UPDATE_EVENT,
+            groupId = OrderStatusConsumer.GROUP_ID,
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void orderStatusBatchConsumer(List<OrderEventDTO> events) {
+        log.info("Order Batch Consumer :: Received {} order status events", events.size());
+        List<OrderEventDTO> fresh = acquire(events);
+        try {
+            // one read-through for all events whose order is not cached, events of removed orders are dropped
+            fresh.removeAll(orderSnapshotCache.enrichAll(fresh));
+        } catch (RuntimeException e) {
+            // nothing was queued yet and no record is to blame, the whole batch is retried
+            release(fresh);
+            throw e;
+        }
+        if (notificationCoalescer.isEnabled()) {
+            // the coalescing window spans batches, it decides when and what to send
+            for (int i = 0; i < fresh.size(); i++) {
+                OrderEventDTO event = fresh.get(i);
+                try {
+                    if (!orderSequenceTracker.isStale(event)) {
+                        notificationCoalescer.submit(event);
+                    }
+                } catch (RuntimeException e) {
+                    List<OrderEventDTO> unsent = fresh.subList(i, fresh.size());
+                    release(unsent);
+                    throw failAt(events, unsent, e);
+                }
+            }
+            return;
+        }
+        // one email per recipient and order (groups keep record order), rendered from the newest status within the batch
+        List<List<OrderEventDTO>> sources = new ArrayList<>();
+        for (List<OrderEventDTO> group : groupByRecipientAndOrder(fresh).values()) {
+            // every event is checked, the check records its sequence
+            List<OrderEventDTO> current = group.stream().filter(event -> !orderSequenceTracker.isStale(event)).toList();
+            if (!current.isEmpty()) {
+                sources.add(group);
+            }
+        }
+        send(events, sources, group -> orderEmailComposer.orderStatus(group.stream()
+                .max(Comparator.comparing(OrderEventDTO::getSequence, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .orElseThrow()));
+    }
+
+    @KafkaListener(
+            topics = {
+                    KafkaTopicConfig.ORDER_EVENT + KafkaConsumerConfig.DLT_SUFFIX,
+                    KafkaTopicConfig.ORDER_UPDATE_EVENT + KafkaConsumerConfig.DLT_SUFFIX
+            },
+            groupId = "grp_orders_dlt"
+    )
+    public void handleDLT(ConsumerRecord<String, OrderEventDTO> dltRecord) {
+        failedEventRecorder.record(dltRecord, OrderStatusConsumer.GROUP_ID);
+    }
+
+    /*
+    renders one email per source (the events it covers) and queues them in one call. on failure the events of
+    the emails that were not queued are released and the batch fails at the first of them.
+    sources have to be in order of their first record, so that a record which can not be rendered is the one
+    the batch fails at (and eventually the one sent to the dlt).
+     */
+    private void send(List<OrderEventDTO> batch, List<List<OrderEventDTO>> sources,
+                      Function<List<OrderEventDTO>, EmailMessage> render) {
+        List<EmailMessage> emails = new ArrayList<>(sources.size());
+        RuntimeException failure = null;
+        int queued = 0;
+        try {
+            for (List<OrderEventDTO> source : sources) {
+                emails.add(render.apply(source));
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        try {
+            if (!emails.isEmpty()) {
+                emailService.sendBatch(emails);
+            }
+            queued = emails.size();
+        } catch (MailQueueFullException e) {
+            failure = e;
+            queued = e.getAccepted();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        if (failure == null) {
+            return;
+        }
+        List<OrderEventDTO> unsent = sources.subList(queued, sources.size()).stream()
+                .flatMap(List::stream)
+                .toList();
+        release(unsent);
+        throw failAt(batch, unsent, failure);
+    }
+
+    // the batch fails at the earliest record among the given events
+    private BatchListenerFailedException failAt(List<OrderEventDTO> batch, List<OrderEventDTO> unsent, RuntimeException cause) {
+        Set<OrderEventDTO> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        failed.addAll(unsent);
+        int index = 0;
+        while (index < batch.size() - 1 && !failed.contains(batch.get(index))) {
+            index++;
+        }
+        log.warn("Order Batch Consumer :: Batch failed at record {} of {}, {} events released: {}",
+                index, batch.size(), unsent.size(), cause.getMessage());
+        return new BatchListenerFailedException(cause.getMessage(), cause, index);
+    }
+
+    // drops events of the batch that were already processed, e.g. redelivered after a rebalance
+    private List<OrderEventDTO> acquire(List<OrderEventDTO> events) {
+        List<OrderEventDTO> fresh = new ArrayList<>(events.size());
+        for (OrderEventDTO event : events) {
+            if (eventDeduplicator.tryAcquire(OrderStatusConsumer.DEDUP_NAME, event)) {
+                fresh.add(event);
+            }
+        }
+        if (fresh.size() < events.size()) {
+            log.info("Order Batch Consumer :: Skipped {} duplicate events", events.size() - fresh.size());
+        }
+        return fresh;
+    }
+
+    private void release(List<OrderEventDTO> events) {
+        events.forEach(event -> eventDeduplicator.release(OrderStatusConsumer.DEDUP_NAME, event));
+    }
+
+    private Map<String, List<OrderEventDTO>> groupByRecipientAndOrder(List<OrderEventDTO> events) {
+        Map<String, List<OrderEventDTO>> groups = new LinkedHashMap<>();
+        for (OrderEventDTO event : events) {
+            groups.computeIfAbsent(event.getEmail() + "|" + event.getOrderId(), key -> new ArrayList<>()).add(event);
+        }
+        return groups;
+    }
+}
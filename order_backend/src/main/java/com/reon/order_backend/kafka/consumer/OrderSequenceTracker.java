@@ -0,0 +1,43 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+remembers the highest sequence number seen per order (bounded, least recently used orders are dropped).
+used by the status consumer to drop updates that arrive after a newer one, e.g. a retried SHIPPED after DELIVERED.
+ */
+@Component
+public class OrderSequenceTracker {
+    private final Cache<ObjectId, Long> lastSeen;
+
+    public OrderSequenceTracker(@Value("${consumer.sequence-tracker.maximum-size}") long maximumSize) {
+        this.lastSeen = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /*
+    records the event's sequence and returns true when a newer event of the same order was already seen.
+    events without a sequence (published before sequencing existed) are never considered stale.
+     */
+    public boolean isStale(OrderEventDTO event) {
+        Long sequence = event.getSequence();
+        if (sequence == null) {
+            return false;
+        }
+        boolean[] stale = new boolean[1];
+        lastSeen.asMap().compute(event.getOrderId(), (orderId, last) -> {
+            if (last != null && sequence < last) {
+                stale[0] = true;
+                return last;
+            }
+            return sequence;
+        });
+        return stale[0];
+    }
+}
@@ -0,0 +1,125 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.User;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+status events only carry orderId, status, sequence and time. the fields that never change after an order is
+placed (owner and recipient) are kept here per order: filled from order placed events, read through from
+mongo on a miss (two projected queries for a whole batch of misses) and bounded by size and idle time.
+ */
+@Component
+@Slf4j
+public class OrderSnapshotCache {
+    private final MongoTemplate mongoTemplate;
+    private final Cache<ObjectId, Snapshot> snapshots;
+
+    record Snapshot(ObjectId userId, String email) {
+    }
+
+    public OrderSnapshotCache(MongoTemplate mongoTemplate,
+                              @Value("${consumer.snapshot-cache.maximum-size}") long maximumSize,
+                              @Value("${consumer.snapshot-cache.ttl}") Duration ttl) {
+        this.mongoTemplate = mongoTemplate;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(ttl)
+                .build();
+    }
+
+    public void remember(OrderEventDTO event) {
+        if (event.getUserId() != null && event.getEmail() != null) {
+            snapshots.put(event.getOrderId(), new Snapshot(event.getUserId(), event.getEmail()));
+        }
+    }
+
+    // fills in userId and email, returns false when the order no longer exists (e.g. it was cancelled)
+    public boolean enrich(OrderEventDTO event) {
+        return enrichAll(List.of(event)).isEmpty();
+    }
+
+    // fills in userId and email of every event, returns the events whose order no longer exists
+    public List<OrderEventDTO> enrichAll(List<OrderEventDTO> events) {
+        List<OrderEventDTO> misses = new ArrayList<>();
+        for (OrderEventDTO event : events) {
+            if (event.getUserId() != null && event.getEmail() != null) {
+                // full event, e.g. published before events were thinned
+                remember(event);
+                continue;
+            }
+            Snapshot snapshot = snapshots.getIfPresent(event.getOrderId());
+            if (snapshot != null) {
+                apply(event, snapshot);
+            } else {
+                misses.add(event);
+            }
+        }
+        if (misses.isEmpty()) {
+            return misses;
+        }
+
+        Map<ObjectId, Snapshot> loaded = load(misses);
+        List<OrderEventDTO> unknown = new ArrayList<>();
+        for (OrderEventDTO event : misses) {
+            Snapshot snapshot = loaded.get(event.getOrderId());
+            if (snapshot != null) {
+                apply(event, snapshot);
+            } else {
+                unknown.add(event);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            log.warn("Order Snapshot Cache :: No order found for {} status events", unknown.size());
+        }
+        return unknown;
+    }
+
+    private Map<ObjectId, Snapshot> load(List<OrderEventDTO> events) {
+        Set<ObjectId> orderIds = new HashSet<>();
+        events.forEach(event -> orderIds.add(event.getOrderId()));
+        Query ordersQuery = new Query(Criteria.where("_id").in(orderIds));
+        ordersQuery.fields().include("userId");
+        List<Order> orders = mongoTemplate.find(ordersQuery, Order.class);
+
+        Set<ObjectId> userIds = new HashSet<>();
+        orders.forEach(order -> userIds.add(order.getUserId()));
+        Query usersQuery = new Query(Criteria.where("_id").in(userIds));
+        usersQuery.fields().include("email");
+        Map<ObjectId, String> emails = new HashMap<>();
+        mongoTemplate.find(usersQuery, User.class).forEach(user -> emails.put(user.getId(), user.getEmail()));
+
+        Map<ObjectId, Snapshot> loaded = new HashMap<>();
+        for (Order order : orders) {
+            String email = emails.get(order.getUserId());
+            if (email != null) {
+                Snapshot snapshot = new Snapshot(order.getUserId(), email);
+                snapshots.put(order.getId(), snapshot);
+                loaded.put(order.getId(), snapshot);
+            }
+        }
+        return loaded;
+    }
+
+    private static void apply(OrderEventDTO event, Snapshot snapshot) {
+        event.setUserId(snapshot.userId());
+        event.setEmail(snapshot.email());
+    }
+}
@@ -1,11 +1,13 @@
 package com.reon.order_backend.kafka.consumer;
 
-import com.reon.order_backend.document.FailedEvent;
 import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.email.EmailMessage;
 import com.reon.order_backend.email.EmailService;
-import com.reon.order_backend.repository.FailedEventRepository;
+import com.reon.order_backend.email.OrderEmailComposer;
+import com.reon.order_backend.kafka.KafkaTopicConfig;
 import lombok.extern.slf4j.Slf4j;
-import org.bson.types.ObjectId;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.RetryableTopic;
@@ -13,103 +15,116 @@ import org.springframework.kafka.retrytopic.DltStrategy;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-
+// one record per call with retry topics, the default mode. see OrderBatchConsumer for consumer.mode=batch.
 @Component
 @Slf4j
+@ConditionalOnProperty(name = "consumer.mode", havingValue = "record", matchIfMissing = true)
 public class OrderStatusConsumer {
+    public static final String GROUP_ID = "grp_orders";
+    static final String DEDUP_NAME = "email";
+    /*
+    smtp failures are retried inside the mail engine (MailRetryScheduler), an exception reaching kafka means the
+    event itself could not be handled (bad payload, rendering error, mail queue full). one delayed retry covers the
+    last case, anything failing twice is treated as a poison message and parked in the dlt.
+     */
+    private static final String RETRY_TOPIC_ATTEMPTS = "2";
 
     private final EmailService emailService;
-    private final FailedEventRepository failedEventRepository;
-
-    public OrderStatusConsumer(EmailService emailService, FailedEventRepository failedEventRepository) {
+    private final OrderEmailComposer orderEmailComposer;
+    private final FailedEventRecorder failedEventRecorder;
+    private final OrderSequenceTracker orderSequenceTracker;
+    private final StatusNotificationCoalescer notificationCoalescer;
+    private final EventDeduplicator eventDeduplicator;
+    private final OrderSnapshotCache orderSnapshotCache;
+
+    public OrderStatusConsumer(EmailService emailService, OrderEmailComposer orderEmailComposer,
+                               FailedEventRecorder failedEventRecorder,
+                               OrderSequenceTracker orderSequenceTracker,
+                               StatusNotificationCoalescer notificationCoalescer,
+                               EventDeduplicator eventDeduplicator,
+                               OrderSnapshotCache orderSnapshotCache) {
         this.emailService = emailService;
-        this.failedEventRepository = failedEventRepository;
+        this.orderEmailComposer = orderEmailComposer;
+        this.failedEventRecorder = failedEventRecorder;
+        this.orderSequenceTracker = orderSequenceTracker;
+        this.notificationCoalescer = notificationCoalescer;
+        this.eventDeduplicator = eventDeduplicator;
+        this.orderSnapshotCache = orderSnapshotCache;
     }
 
     @RetryableTopic(
-            attempts = "5",
-            backoff = @Backoff(delay = 5000, multiplier = 2),
+            attempts = RETRY_TOPIC_ATTEMPTS,
+            backoff = @Backoff(delay = 5000),
             dltStrategy = DltStrategy.FAIL_ON_ERROR
     )
     @KafkaListener(
-            topics = "order_event",
-            groupId = "grp_orders"
+            topics = KafkaTopicConfig.ORDER_EVENT,
+            groupId = GROUP_ID
     )
     public void orderPlaceConsumer(OrderEventDTO orderEventDTO) {
         log.info("Order Placed: {}", orderEventDTO);
-        sendOrderPlaceEmail(orderEventDTO);
+        orderSnapshotCache.remember(orderEventDTO);
+        if (!eventDeduplicator.tryAcquire(DEDUP_NAME, orderEventDTO)) {
+            log.info("Order Consumer :: Skipping duplicate event: {}", orderEventDTO.eventKey());
+            return;
+        }
+        try {
+            sendOrderPlaceEmail(orderEventDTO);
+        } catch (RuntimeException e) {
+            eventDeduplicator.release(DEDUP_NAME, orderEventDTO);
+            throw e;
+        }
     }
 
     private void sendOrderPlaceEmail(OrderEventDTO orderEventDTO) {
-        StringBuilder items = new StringBuilder();
-        orderEventDTO.getItems().forEach(item -> items.append("- ").append(item).append("\n"));
-
-        /*
-        extracted values from order event dto
-         */
-        double amount = orderEventDTO.getAmount();
-        String receiverEmailId = orderEventDTO.getEmail();
-        String status = String.valueOf(orderEventDTO.getStatus());
-        String createdOn = String.valueOf(orderEventDTO.getEventCreationTime());
-
-        // email body
-        String emailBody = """
-                Hello there,
-                
-                Your order has been placed, here are the details:
-                
-                Items:
-                %s
-                
-                Amount: %.2f
-                Status: %s
-                CreatedOn: %s
-                
-                """.formatted(items, amount, status, createdOn);
-
-        emailService.sendOrderSuccessEmail(receiverEmailId, "Order Placed", emailBody);
-        log.info("Order Consumer :: Order Placed email sent to: {}",receiverEmailId);
+        EmailMessage email = orderEmailComposer.orderPlaced(orderEventDTO);
+        emailService.send(email);
+        log.info("Order Consumer :: Order Placed email sent to: {}", email.getTo());
     }
 
     @RetryableTopic(
-            attempts = "5",
-            backoff = @Backoff(delay = 5000, multiplier = 2),
+            attempts = RETRY_TOPIC_ATTEMPTS,
+            backoff = @Backoff(delay = 5000),
             dltStrategy = DltStrategy.FAIL_ON_ERROR
     )
-    @KafkaListener(topics = "order_update_event", groupId = "grp_orders")
+    @KafkaListener(topics = KafkaTopicConfig.ORDER_UPDATE_EVENT, groupId = GROUP_ID)
     public void orderStatusConsumer(OrderEventDTO orderEventDTO) {
         log.info("Order Status: {}", orderEventDTO);
-        sendOrderStatusEmail(orderEventDTO);
+        if (!eventDeduplicator.tryAcquire(DEDUP_NAME, orderEventDTO)) {
+            log.info("Order Consumer :: Skipping duplicate event: {}", orderEventDTO.eventKey());
+            return;
+        }
+        if (orderSequenceTracker.isStale(orderEventDTO)) {
+            log.warn("Order Consumer :: Dropping stale status {} (sequence {}) for order: {}",
+                    orderEventDTO.getStatus(), orderEventDTO.getSequence(), orderEventDTO.getOrderId());
+            return;
+        }
+        try {
+            if (!orderSnapshotCache.enrich(orderEventDTO)) {
+                log.warn("Order Consumer :: Dropping status {} of unknown order: {}", orderEventDTO.getStatus(), orderEventDTO.getOrderId());
+                return;
+            }
+            if (notificationCoalescer.isEnabled()) {
+                notificationCoalescer.submit(orderEventDTO);
+                return;
+            }
+            sendOrderStatusEmail(orderEventDTO);
+        } catch (RuntimeException e) {
+            eventDeduplicator.release(DEDUP_NAME, orderEventDTO);
+            throw e;
+        }
     }
 
     private void sendOrderStatusEmail(OrderEventDTO orderEventDTO) {
-        String newOrderStatus = orderEventDTO.getStatus().toString();
-        ObjectId orderId = orderEventDTO.getOrderId();
-
-        String emailBody = """
-                Hello there,
-                
-                Your order status has been updated:
-                OrderId: %s
-                Status: %s
-                
-                """.formatted(orderId, newOrderStatus);
-        emailService.sendOrderStatusEmail(orderEventDTO.getEmail(), "Order Status", emailBody);
-        log.info("Order Consumer :: Order status is updated to: {}", newOrderStatus);
+        EmailMessage email = orderEmailComposer.orderStatus(orderEventDTO);
+        emailService.send(email);
+        log.info("Order Consumer :: Order status is updated to: {}", orderEventDTO.getStatus());
     }
 
+    // shared by both listeners, the original topic is derived from the dlt the record arrived on
     @DltHandler
-    public void handleOrderPlacedDLT(OrderEventDTO dltEvent) {
-        log.error("Order event failed after retries: {}", dltEvent);
-
-        FailedEvent failedEvent = FailedEvent.builder()
-                .topic("order_event")
-                .payload(dltEvent)
-                .errorMessage("")
-                .failedAt(LocalDateTime.now())
-                .build();
-        failedEventRepository.save(failedEvent);
+    public void handleDLT(ConsumerRecord<String, OrderEventDTO> dltRecord) {
+        failedEventRecorder.record(dltRecord, GROUP_ID);
 
         // todo:: send alert to admin
     }
@@ -0,0 +1,62 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.kafka.KafkaTopicConfig;
+import com.reon.order_backend.service.OrderSummaryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/*
+keeps the per-user order summaries up to date. runs in its own consumer group, so it reads every event
+independently of the email consumers, and applies each event exactly once through the deduplicator.
+ */
+@Component
+@Slf4j
+public class OrderSummaryConsumer {
+    private static final String DEDUP_NAME = "summary";
+
+    private final OrderSummaryService orderSummaryService;
+    private final OrderSnapshotCache orderSnapshotCache;
+    private final EventDeduplicator eventDeduplicator;
+
+    public OrderSummaryConsumer(OrderSummaryService orderSummaryService, OrderSnapshotCache orderSnapshotCache,
+                                EventDeduplicator eventDeduplicator) {
+        this.orderSummaryService = orderSummaryService;
+        this.orderSnapshotCache = orderSnapshotCache;
+        this.eventDeduplicator = eventDeduplicator;
+    }
+
+    @KafkaListener(topics = KafkaTopicConfig.ORDER_EVENT, groupId = "grp_order_summary")
+    public void orderPlacedSummaryConsumer(OrderEventDTO orderEventDTO) {
+        orderSnapshotCache.remember(orderEventDTO);
+        apply(orderEventDTO, orderSummaryService::applyPlaced);
+    }
+
+    @KafkaListener(topics = KafkaTopicConfig.ORDER_UPDATE_EVENT, groupId = "grp_order_summary")
+    public void orderStatusSummaryConsumer(OrderEventDTO orderEventDTO) {
+        apply(orderEventDTO, event -> {
+            // status events only name the order, the owner comes from the snapshot cache
+            if (!orderSnapshotCache.enrich(event)) {
+                log.warn("Order Summary Consumer :: Dropping status {} of unknown order: {}", event.getStatus(), event.getOrderId());
+                return;
+            }
+            orderSummaryService.applyStatus(event);
+        });
+    }
+
+    private void apply(OrderEventDTO event, Consumer<OrderEventDTO> handler) {
+        if (!eventDeduplicator.tryAcquire(DEDUP_NAME, event)) {
+            log.debug("Order Summary Consumer :: Skipping duplicate event: {}", event.eventKey());
+            return;
+        }
+        try {
+            handler.accept(event);
+        } catch (RuntimeException e) {
+            eventDeduplicator.release(DEDUP_NAME, event);
+            throw e;
+        }
+    }
+}
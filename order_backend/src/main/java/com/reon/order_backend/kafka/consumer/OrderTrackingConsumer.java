@@ -0,0 +1,49 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.kafka.KafkaTopicConfig;
+import com.reon.order_backend.tracking.OrderTrackingRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/*
+feeds the tracking streams. every node has to receive every status event for its own connected clients,
+so the partitions are assigned manually instead of joining a consumer group, and each start seeks to the
+end since history is not replayed. the group id below only names the (unused) offset commits, no group
+membership is created, so restarts leave no consumer groups behind on the broker.
+ */
+@Component
+@Slf4j
+public class OrderTrackingConsumer implements ConsumerSeekAware {
+    private final OrderTrackingRegistry orderTrackingRegistry;
+    private final OrderSnapshotCache orderSnapshotCache;
+
+    public OrderTrackingConsumer(OrderTrackingRegistry orderTrackingRegistry, OrderSnapshotCache orderSnapshotCache) {
+        this.orderTrackingRegistry = orderTrackingRegistry;
+        this.orderSnapshotCache = orderSnapshotCache;
+    }
+
+    @KafkaListener(
+            groupId = "grp_order_tracking",
+            topicPartitions = @org.springframework.kafka.annotation.TopicPartition(
+                    topic = KafkaTopicConfig.ORDER_UPDATE_EVENT,
+                    partitions = "#{@partitionFinder.partitions('" + KafkaTopicConfig.ORDER_UPDATE_EVENT + "')}"
+            )
+    )
+    public void orderTrackingConsumer(OrderEventDTO orderEventDTO) {
+        log.debug("Order Tracking Consumer :: Status {} for order: {}", orderEventDTO.getStatus(), orderEventDTO.getOrderId());
+        // the owner is needed for the per-user stream, an unknown order still reaches its own subscribers
+        orderSnapshotCache.enrich(orderEventDTO);
+        orderTrackingRegistry.publish(orderEventDTO);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToEnd(assignments.keySet());
+    }
+}
@@ -0,0 +1,172 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.reon.order_backend.document.NotificationWindow;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.email.EmailService;
+import com.reon.order_backend.email.OrderEmailComposer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+collapses rapid status transitions into one notification. the first update of an order (or of a recipient,
+when per-recipient is enabled) opens a window, every update arriving within the window is collected and
+a single email with the latest status and the transition history is sent when the window closes.
+a window of 0 disables coalescing.
+the windows are kept in notification_windows, an event is written there before the consumer returns and its
+offset is committed. the window is removed atomically before its email is sent, so it is sent once even when
+the sweep of another node finds it. a window whose node died is sent by the sweep once it is overdue,
+a failed send puts the window back for another try and gives the events up after max-attempts.
+the scheduler thread only opens and closes windows, the emails are handed to the mail engine by a sender thread
+because a full mail queue blocks the caller.
+ */
+@Component
+@Slf4j
+public class StatusNotificationCoalescer {
+    private final EmailService emailService;
+    private final OrderEmailComposer orderEmailComposer;
+    private final EventDeduplicator eventDeduplicator;
+    private final MongoTemplate mongoTemplate;
+    private final Duration window;
+    private final boolean perRecipient;
+    private final int maxAttempts;
+    // windows this node has a timer for, the windows themselves live in mongo
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StatusNotificationCoalescer(EmailService emailService, OrderEmailComposer orderEmailComposer,
+                                       EventDeduplicator eventDeduplicator, MongoTemplate mongoTemplate,
+                                       @Value("${notification.coalesce.window}") Duration window,
+                                       @Value("${notification.coalesce.per-recipient}") boolean perRecipient,
+                                       @Value("${notification.coalesce.max-attempts}") int maxAttempts) {
+        this.emailService = emailService;
+        this.orderEmailComposer = orderEmailComposer;
+        this.eventDeduplicator = eventDeduplicator;
+        this.mongoTemplate = mongoTemplate;
+        this.window = window;
+        this.perRecipient = perRecipient;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public boolean isEnabled() {
+        return !window.isZero();
+    }
+
+    public void submit(OrderEventDTO event) {
+        String key = perRecipient ? event.getEmail() : event.getOrderId().toHexString();
+        mongoTemplate.upsert(
+                new Query(Criteria.where("_id").is(key)),
+                new Update().push("events", event)
+                        .setOnInsert("attempts", 0)
+                        .setOnInsert("dueAt", LocalDateTime.now().plus(window)),
+                NotificationWindow.class
+        );
+        schedule(key);
+    }
+
+    private void schedule(String key) {
+        if (scheduled.add(key)) {
+            scheduler.schedule(() -> {
+                scheduled.remove(key);
+                sender.execute(() -> send(key));
+            }, window.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // windows left behind by a node that stopped or died before it could send them
+    @Scheduled(fixedDelayString = "${notification.coalesce.sweep-interval}")
+    public void sweep() {
+        if (!isEnabled()) {
+            return;
+        }
+        Query overdue = new Query(Criteria.where("dueAt").lt(LocalDateTime.now().minus(window)));
+        overdue.fields().include("_id");
+        for (NotificationWindow orphan : mongoTemplate.find(overdue, NotificationWindow.class)) {
+            if (!scheduled.contains(orphan.getKey())) {
+                sender.execute(() -> send(orphan.getKey()));
+            }
+        }
+    }
+
+    void send(String key) {
+        NotificationWindow pending = mongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(key)), NotificationWindow.class);
+        if (pending == null || pending.getEvents().isEmpty()) {
+            return;
+        }
+        List<OrderEventDTO> events = pending.getEvents();
+        try {
+            if (events.size() == 1) {
+                emailService.send(orderEmailComposer.orderStatus(events.get(0)));
+                return;
+            }
+            Map<ObjectId, List<OrderEventDTO>> histories = new LinkedHashMap<>();
+            for (OrderEventDTO event : events) {
+                histories.computeIfAbsent(event.getOrderId(), id -> new ArrayList<>()).add(event);
+            }
+            histories.values().forEach(history -> history.sort(
+                    Comparator.comparing(OrderEventDTO::getSequence, Comparator.nullsFirst(Comparator.naturalOrder()))));
+            emailService.send(orderEmailComposer.orderStatusSummary(events.get(0).getEmail(), histories.values()));
+            log.info("Notification Coalescer :: Collapsed {} status updates into one email to: {}",
+                    events.size(), events.get(0).getEmail());
+        } catch (RuntimeException e) {
+            retry(key, pending, e);
+        }
+    }
+
+    private void retry(String key, NotificationWindow failed, RuntimeException e) {
+        int attempts = failed.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            // nothing redelivers these events, released so that a replay of them is not skipped as a duplicate
+            log.error("Notification Coalescer :: Giving up on notification for {} after {} attempts: {}", key, attempts, e.getMessage());
+            failed.getEvents().forEach(event -> eventDeduplicator.release(OrderStatusConsumer.DEDUP_NAME, event));
+            return;
+        }
+        log.warn("Notification Coalescer :: Failed to send notification for {}, retrying: {}", key, e.getMessage());
+        // merges into a window opened for the same key in the meantime
+        mongoTemplate.upsert(
+                new Query(Criteria.where("_id").is(key)),
+                new Update().push("events").each(failed.getEvents().toArray())
+                        .max("attempts", attempts)
+                        .setOnInsert("dueAt", LocalDateTime.now().plus(window)),
+                NotificationWindow.class
+        );
+        schedule(key);
+    }
+
+    // open windows stay in mongo, the next start or another node's sweep sends them
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+        sender.shutdown();
+    }
+}
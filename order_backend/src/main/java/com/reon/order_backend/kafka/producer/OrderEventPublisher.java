@@ -0,0 +1,56 @@
+package com.reon.order_backend.kafka.producer;
+
+import com.reon.order_backend.document.OutboxEvent;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+entry point for publishing order events. events are only recorded in the outbox here, callers do so inside the
+transaction of the order write, the outbox relay delivers them to kafka in the background.
+events are keyed by orderId, so all events of one order land on the same partition in order.
+ */
+@Component
+@Slf4j
+public class OrderEventPublisher {
+    private final OutboxEventRepository outboxEventRepository;
+
+    public OrderEventPublisher(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    public void publish(String topic, OrderEventDTO event) {
+        OutboxEvent outboxEvent = OutboxEvent.builder()
+                .topic(topic)
+                .messageKey(event.getOrderId().toHexString())
+                .payload(event)
+                .status(OutboxEvent.Status.PENDING)
+                .createdAt(LocalDateTime.now())
+                .build();
+        outboxEventRepository.insert(outboxEvent);
+        log.info("Order Event Publisher :: Event for order {} recorded in outbox for topic: {}", event.getOrderId(), topic);
+    }
+
+    // records all events with a single insert, the relay sends them to kafka as one batch
+    public void publishAll(String topic, List<OrderEventDTO> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> outboxEvents = events.stream()
+                .map(event -> OutboxEvent.builder()
+                        .topic(topic)
+                        .messageKey(event.getOrderId().toHexString())
+                        .payload(event)
+                        .status(OutboxEvent.Status.PENDING)
+                        .createdAt(now)
+                        .build())
+                .toList();
+        outboxEventRepository.insert(outboxEvents);
+        log.info("Order Event Publisher :: {} events recorded in outbox for topic: {}", events.size(), topic);
+    }
+}
@@ -0,0 +1,238 @@
+package com.reon.order_backend.kafka.producer;
+
+import com.reon.order_backend.document.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+drains pending outbox rows to kafka in batches and marks them as published.
+each batch is claimed first: the rows are moved to PUBLISHING under a lease owned by this batch, so relays
+on several nodes split the rows instead of all sending them. a row is only PUBLISHED once the broker
+acknowledged it, after a crash its lease runs out and the oldest rows are claimed again (at-least-once delivery).
+a row failing max-attempts times is parked as FAILED so it does not hold up the rows behind it.
+rows of one key (order) keep their order: a relay only sends a key while no other relay holds an older row of it,
+sends the key's rows one after the other and stops at the first one failing, the rest go back to PENDING with it.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${outbox.relay.batch-size}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout}")
+    private Duration sendTimeout;
+
+    @Value("${outbox.relay.lease}")
+    private Duration lease;
+
+    @Value("${outbox.relay.max-attempts}")
+    private int maxAttempts;
+
+    public OutboxRelay(MongoTemplate mongoTemplate, KafkaTemplate<String, Object> kafkaTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval}")
+    public void relay() {
+        List<OutboxEvent> batch;
+        do {
+            batch = claim();
+            if (!batch.isEmpty() && !publishBatch(batch)) {
+                // broker is failing, retry on the next poll instead of spinning.
+                return;
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    // rows no relay is working on: never claimed yet, or claimed by a relay whose lease ran out
+    public static Criteria claimable(LocalDateTime now) {
+        return new Criteria().orOperator(
+                Criteria.where("status").is(OutboxEvent.Status.PENDING),
+                Criteria.where("status").is(OutboxEvent.Status.PUBLISHING).and("leaseUntil").lt(now)
+        );
+    }
+
+    /*
+    claims up to batch-size of the oldest claimable rows. the update re-checks the claim condition per row,
+    rows another relay claimed in between are not modified and therefore not read back.
+     */
+    private List<OutboxEvent> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        Query candidates = new Query(claimable(now)).with(Sort.by("id")).limit(batchSize);
+        candidates.fields().include("_id");
+        List<ObjectId> ids = mongoTemplate.find(candidates, OutboxEvent.class).stream()
+                .map(OutboxEvent::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String token = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(
+                new Query(new Criteria().andOperator(Criteria.where("_id").in(ids), claimable(now))),
+                new Update().set("status", OutboxEvent.Status.PUBLISHING)
+                        .set("leaseOwner", token)
+                        .set("leaseUntil", now.plus(lease)),
+                OutboxEvent.class
+        );
+        List<OutboxEvent> claimed = mongoTemplate.find(
+                new Query(Criteria.where("_id").in(ids).and("leaseOwner").is(token)).with(Sort.by("id")),
+                OutboxEvent.class
+        );
+        return withoutBlockedKeys(claimed, token);
+    }
+
+    /*
+    hands back the claimed rows of keys that still have an older unsent row elsewhere, usually claimed by another
+    relay that is sending it right now. whoever holds the oldest row of a key is the only one sending that key.
+     */
+    private List<OutboxEvent> withoutBlockedKeys(List<OutboxEvent> claimed, String token) {
+        if (claimed.isEmpty()) {
+            return claimed;
+        }
+        Map<String, ObjectId> oldestByKey = new HashMap<>();
+        claimed.forEach(event -> oldestByKey.putIfAbsent(event.getMessageKey(), event.getId()));
+        Query older = new Query(Criteria.where("messageKey").in(oldestByKey.keySet())
+                .and("_id").lt(claimed.get(claimed.size() - 1).getId())
+                .and("status").in(OutboxEvent.Status.PENDING, OutboxEvent.Status.PUBLISHING)
+                .and("leaseOwner").ne(token));
+        older.fields().include("messageKey");
+        Set<String> blocked = new HashSet<>();
+        for (OutboxEvent event : mongoTemplate.find(older, OutboxEvent.class)) {
+            if (event.getId().compareTo(oldestByKey.get(event.getMessageKey())) < 0) {
+                blocked.add(event.getMessageKey());
+            }
+        }
+        if (blocked.isEmpty()) {
+            return claimed;
+        }
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("leaseOwner").is(token).and("messageKey").in(blocked)),
+                release(),
+                OutboxEvent.class
+        );
+        log.debug("Outbox Relay :: Released rows of {} keys held by another relay", blocked.size());
+        return claimed.stream().filter(event -> !blocked.contains(event.getMessageKey())).toList();
+    }
+
+    /*
+    sends the batch in rounds, one row per key and round, so a key's next row only goes out once the broker
+    acknowledged the previous one. a failed row and the unsent rows behind it are handed back together.
+     */
+    private boolean publishBatch(List<OutboxEvent> batch) {
+        Map<String, Deque<OutboxEvent>> pending = new LinkedHashMap<>();
+        batch.forEach(event -> pending.computeIfAbsent(event.getMessageKey(), key -> new ArrayDeque<>()).add(event));
+
+        List<ObjectId> published = new ArrayList<>();
+        List<ObjectId> held = new ArrayList<>();
+        int failed = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxEvent.class);
+        boolean interrupted = false;
+        while (!pending.isEmpty() && !interrupted) {
+            List<OutboxEvent> round = new ArrayList<>(pending.size());
+            List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(pending.size());
+            for (Deque<OutboxEvent> rows : pending.values()) {
+                OutboxEvent event = rows.peekFirst();
+                round.add(event);
+                sends.add(kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload()));
+            }
+            kafkaTemplate.flush();
+
+            for (int i = 0; i < round.size(); i++) {
+                OutboxEvent event = round.get(i);
+                try {
+                    sends.get(i).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                    published.add(event.getId());
+                    Deque<OutboxEvent> rows = pending.get(event.getMessageKey());
+                    rows.pollFirst();
+                    if (rows.isEmpty()) {
+                        pending.remove(event.getMessageKey());
+                    }
+                } catch (InterruptedException e) {
+                    // unchecked rows keep their lease and are claimed again once it runs out
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                    break;
+                } catch (Exception e) {
+                    failed++;
+                    fail(bulk, event, e);
+                    Deque<OutboxEvent> rows = pending.remove(event.getMessageKey());
+                    rows.pollFirst();
+                    rows.forEach(behind -> held.add(behind.getId()));
+                }
+            }
+        }
+
+        if (!held.isEmpty()) {
+            bulk.updateMulti(new Query(Criteria.where("_id").in(held)), release());
+        }
+        if (!published.isEmpty()) {
+            bulk.updateMulti(
+                    new Query(Criteria.where("_id").in(published)),
+                    new Update().set("status", OutboxEvent.Status.PUBLISHED)
+                            .set("publishedAt", LocalDateTime.now())
+                            .unset("leaseOwner")
+                            .unset("leaseUntil")
+            );
+        }
+        if (failed > 0 || !published.isEmpty()) {
+            bulk.execute();
+        }
+        log.debug("Outbox Relay :: Published {} of {} outbox events", published.size(), batch.size());
+        return published.size() == batch.size();
+    }
+
+    private void fail(BulkOperations bulk, OutboxEvent event, Exception e) {
+        int attempts = event.getAttempts() + 1;
+        OutboxEvent.Status next = attempts >= maxAttempts ? OutboxEvent.Status.FAILED : OutboxEvent.Status.PENDING;
+        if (next == OutboxEvent.Status.FAILED) {
+            log.error("Outbox Relay :: Giving up on outbox event {} after {} attempts: {}", event.getId(), attempts, e.getMessage());
+        } else {
+            log.error("Outbox Relay :: Kafka send failed for outbox event {}: {}", event.getId(), e.getMessage());
+        }
+        bulk.updateOne(
+                new Query(Criteria.where("_id").is(event.getId())),
+                new Update().set("attempts", attempts)
+                        .set("lastError", String.valueOf(e.getMessage()))
+                        .set("status", next)
+                        .unset("leaseOwner")
+                        .unset("leaseUntil")
+        );
+    }
+
+    // back to PENDING without counting an attempt, the row was not sent
+    private static Update release() {
+        return new Update().set("status", OutboxEvent.Status.PENDING)
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+    }
+}
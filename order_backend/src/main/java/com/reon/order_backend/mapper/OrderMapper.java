@@ -3,14 +3,22 @@ package com.reon.order_backend.mapper;
 import com.reon.order_backend.document.Order;
 import com.reon.order_backend.dto.order.OrderCreation;
 import com.reon.order_backend.dto.order.OrderResponse;
+import org.bson.types.ObjectId;
 import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Component
 public class OrderMapper {
     public static Order mapOrderToEntity(OrderCreation createOrder) {
         return Order.builder()
                 .items(createOrder.getItems())
-                .amount(createOrder.getAmount())
+                .amountMinor(createOrder.getAmount() == null ? null : Order.toMinorUnits(createOrder.getAmount()))
                 .build();
     }
 
@@ -19,11 +27,55 @@ public class OrderMapper {
                 .id(order.getId())
                 .userId(order.getUserId())
                 .items(order.getItems())
-                .amount(order.getAmount())
+                .amount(order.amount())
                 .status(order.getStatus())
-                .timeStamps(order.getTimeStamps())
+                .timeStamps(timeStamps(order))
                 .createdOn(order.getCreatedOn())
                 .updateOn(order.getUpdateOn())
+                .eventSequence(order.getEventSequence())
                 .build();
     }
+
+    // keyed by status name, in status order
+    private static Map<String, LocalDateTime> timeStamps(Order order) {
+        Map<String, LocalDateTime> timeStamps = new LinkedHashMap<>();
+        order.timeStamps().forEach((status, time) -> timeStamps.put(status.name(), time));
+        return timeStamps;
+    }
+
+    /*
+    etag of a single order: the event sequence changes with every status change, orders created before
+    sequencing fall back to their last modification time.
+     */
+    public static String orderETag(ObjectId id, Long eventSequence, LocalDateTime updateOn) {
+        String version = eventSequence != null ? "s" + eventSequence : "t" + updateOn;
+        return "\"" + id.toHexString() + "-" + version + "\"";
+    }
+
+    public static String orderETag(OrderResponse order) {
+        return orderETag(order.getId(), order.getEventSequence(), order.getUpdateOn());
+    }
+
+    // etag of a page of orders: changes when any order on it changes or when orders are added or removed
+    public static String pageETag(int pageNo, int pageSize, long totalElements, List<String> orderETags) {
+        String page = pageNo + ":" + pageSize + ":" + totalElements + ":" + String.join(",", orderETags);
+        return "\"" + DigestUtils.md5DigestAsHex(page.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    // true when the If-None-Match header (possibly a list, possibly weak) contains the etag
+    public static boolean eTagMatches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
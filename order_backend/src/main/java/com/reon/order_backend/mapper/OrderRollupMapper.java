@@ -0,0 +1,28 @@
+package com.reon.order_backend.mapper;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.OrderRollup;
+import com.reon.order_backend.dto.analytics.OrderRollupResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+public class OrderRollupMapper {
+
+    public OrderRollupResponse rollupResponse(OrderRollup rollup) {
+        Map<Order.Status, Long> statusCounts = new EnumMap<>(Order.Status.class);
+        rollup.getStatusCounts().forEach((status, count) -> statusCounts.put(Order.Status.valueOf(status), count));
+        return OrderRollupResponse.builder()
+                .granularity(rollup.getGranularity())
+                .bucketStart(rollup.getBucketStart())
+                .placed(rollup.getPlaced())
+                .statusCounts(statusCounts)
+                .transitions(new TreeMap<>(rollup.getTransitions()))
+                .revenue(Order.fromMinorUnits(rollup.getRevenueMinor()))
+                .cancelledRevenue(Order.fromMinorUnits(rollup.getCancelledRevenueMinor()))
+                .build();
+    }
+}
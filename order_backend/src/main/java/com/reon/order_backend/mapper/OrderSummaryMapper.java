@@ -0,0 +1,44 @@
+package com.reon.order_backend.mapper;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.OrderSummary;
+import com.reon.order_backend.dto.summary.OrderSummaryResponse;
+import com.reon.order_backend.dto.summary.RecentOrderResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Component
+public class OrderSummaryMapper {
+
+    public OrderSummaryResponse summaryResponse(OrderSummary summary) {
+        // every status is listed, zero when the user has no order in it
+        Map<Order.Status, Long> statusCounts = new EnumMap<>(Order.Status.class);
+        long totalOrders = 0;
+        for (Order.Status status : Order.Status.values()) {
+            long count = Math.max(0, summary.getStatusCounts().getOrDefault(status.name(), 0L));
+            statusCounts.put(status, count);
+            if (status != Order.Status.CANCELLED) {
+                totalOrders += count;
+            }
+        }
+        return OrderSummaryResponse.builder()
+                .userId(summary.getUserId())
+                .totalOrders(totalOrders)
+                .statusCounts(statusCounts)
+                .totalSpend(Order.fromMinorUnits(summary.getTotalSpendMinor()))
+                .recentOrders(summary.getRecentOrders().stream().map(this::recentOrderResponse).toList())
+                .updatedOn(summary.getUpdatedOn())
+                .build();
+    }
+
+    private RecentOrderResponse recentOrderResponse(OrderSummary.RecentOrder recentOrder) {
+        return RecentOrderResponse.builder()
+                .orderId(recentOrder.getOrderId())
+                .status(recentOrder.getStatus())
+                .amount(Order.fromMinorUnits(recentOrder.getAmountMinor()))
+                .createdOn(recentOrder.getCreatedOn())
+                .build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.reon.order_backend.mapper;
+
+import com.reon.order_backend.document.ReplayJob;
+import com.reon.order_backend.dto.replay.ReplayJobResponse;
+import com.reon.order_backend.dto.replay.ReplayRequest;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ReplayJobMapper {
+    public ReplayJob mapToEntity(ReplayRequest request) {
+        return ReplayJob.builder()
+                .topic(request.getTopic())
+                .from(request.getFrom())
+                .to(request.getTo())
+                .errorContains(request.getErrorContains())
+                .ratePerSecond(request.getRatePerSecond())
+                .batchSize(request.getBatchSize())
+                .build();
+    }
+
+    public ReplayJobResponse replayJobResponse(ReplayJob job) {
+        return ReplayJobResponse.builder()
+                .id(job.getId())
+                .topic(job.getTopic())
+                .from(job.getFrom())
+                .to(job.getTo())
+                .errorContains(job.getErrorContains())
+                .ratePerSecond(job.getRatePerSecond())
+                .batchSize(job.getBatchSize())
+                .status(job.getStatus())
+                .replayedCount(job.getReplayedCount())
+                .lastError(job.getLastError())
+                .createdOn(job.getCreatedOn())
+                .updatedOn(job.getUpdatedOn())
+                .build();
+    }
+}
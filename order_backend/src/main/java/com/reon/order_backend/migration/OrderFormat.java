@@ -0,0 +1,79 @@
+package com.reon.order_backend.migration;
+
+import com.reon.order_backend.document.Order;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/*
+conversion of raw order documents from the v1 layout (items, amount as a double, timeStamps map keyed by status name)
+to v2 (see Order). shared by the load time normalizer and the background migration.
+ */
+public final class OrderFormat {
+    static final String LEGACY_ITEMS = "items";
+    static final String LEGACY_AMOUNT = "amount";
+    static final String LEGACY_TIME_STAMPS = "timeStamps";
+
+    private OrderFormat() {
+    }
+
+    // rewrites the document in place, returns false when it holds no v1 field
+    public static boolean upgrade(Document order) {
+        boolean changed = false;
+        if (order.containsKey(LEGACY_ITEMS)) {
+            order.put(Order.ITEMS_FIELD, order.remove(LEGACY_ITEMS));
+            changed = true;
+        }
+        if (order.containsKey(LEGACY_AMOUNT)) {
+            Object amount = order.remove(LEGACY_AMOUNT);
+            order.put(Order.AMOUNT_FIELD, amount instanceof Number number ? Order.toMinorUnits(number.doubleValue()) : null);
+            changed = true;
+        }
+        // a status change applied to a v1 order before it was migrated leaves "ts" as a document keyed by ordinal
+        Object statusTimes = order.get(Order.STATUS_TIMES_FIELD);
+        if (statusTimes instanceof Document || order.containsKey(LEGACY_TIME_STAMPS)) {
+            order.put(Order.STATUS_TIMES_FIELD, statusTimes(statusTimes, order.remove(LEGACY_TIME_STAMPS)));
+            changed = true;
+        }
+        if (changed) {
+            order.put(Order.SCHEMA_VERSION_FIELD, Order.SCHEMA_VERSION);
+        }
+        return changed;
+    }
+
+    private static List<Long> statusTimes(Object current, Object legacy) {
+        List<Long> times = new ArrayList<>();
+        if (legacy instanceof Map<?, ?> timeStamps) {
+            timeStamps.forEach((status, time) -> {
+                if (time instanceof Date date) {
+                    put(times, Order.Status.valueOf(status.toString()).ordinal(), date.getTime());
+                }
+            });
+        }
+        // values written after the v1 map take precedence
+        if (current instanceof Document byOrdinal) {
+            byOrdinal.forEach((ordinal, millis) -> {
+                if (millis instanceof Number number) {
+                    put(times, Integer.parseInt(ordinal), number.longValue());
+                }
+            });
+        } else if (current instanceof List<?> list) {
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) instanceof Number number) {
+                    put(times, i, number.longValue());
+                }
+            }
+        }
+        return times;
+    }
+
+    private static void put(List<Long> times, int ordinal, long millis) {
+        while (times.size() <= ordinal) {
+            times.add(null);
+        }
+        times.set(ordinal, millis);
+    }
+}
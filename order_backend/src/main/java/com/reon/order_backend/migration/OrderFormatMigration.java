@@ -0,0 +1,129 @@
+package com.reon.order_backend.migration;
+
+import com.reon.order_backend.document.Order;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/*
+background migration of orders to the v2 layout. v1 orders are streamed in _id order and rewritten in bounded
+unordered batches, with a pause in between so the rewrite does not compete with live traffic.
+each rewrite is conditioned on the event sequence that was read: an order changed meanwhile is skipped and,
+still being v1, picked up by the next pass. reads accept both layouts, so the application never waits for this.
+ */
+@Component
+@Slf4j
+public class OrderFormatMigration implements ApplicationRunner {
+    private static final String ORDERS = "orders";
+    private static final int MAX_PASSES = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService executor;
+
+    @Value("${migration.order-format.enabled}")
+    private boolean enabled;
+
+    @Value("${migration.batch-size}")
+    private int batchSize;
+
+    @Value("${migration.order-format.batch-pause}")
+    private Duration batchPause;
+
+    public OrderFormatMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-format-migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            executor.submit(this::migrate);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // an interrupted migration continues with the remaining v1 orders on the next start
+        executor.shutdownNow();
+    }
+
+    private void migrate() {
+        try {
+            long migrated = 0;
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                long rewritten = migratePass();
+                migrated += rewritten;
+                if (rewritten == 0) {
+                    break;
+                }
+            }
+            if (migrated > 0) {
+                log.info("Order Format Migration :: Migrated {} orders to schema version {}", migrated, Order.SCHEMA_VERSION);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Order Format Migration :: Interrupted, remaining orders are migrated on the next start");
+        } catch (RuntimeException e) {
+            log.error("Order Format Migration :: Failed, orders are still readable in both formats: {}", e.getMessage());
+        }
+    }
+
+    private long migratePass() throws InterruptedException {
+        Query query = new Query(Criteria.where(Order.SCHEMA_VERSION_FIELD).ne(Order.SCHEMA_VERSION))
+                .with(Sort.by("_id"));
+
+        long migrated = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ORDERS);
+        int pending = 0;
+        try (Stream<Document> orders = mongoTemplate.stream(query, Document.class, ORDERS)) {
+            for (Document order : (Iterable<Document>) orders::iterator) {
+                Object sequence = order.get("eventSequence");
+                Update update = new Update().set(Order.SCHEMA_VERSION_FIELD, Order.SCHEMA_VERSION);
+                // without a v1 field only the version marker is missing
+                if (OrderFormat.upgrade(order)) {
+                    update.set(Order.ITEMS_FIELD, order.get(Order.ITEMS_FIELD))
+                            .set(Order.AMOUNT_FIELD, order.get(Order.AMOUNT_FIELD))
+                            .set(Order.STATUS_TIMES_FIELD, order.get(Order.STATUS_TIMES_FIELD))
+                            .unset(OrderFormat.LEGACY_ITEMS)
+                            .unset(OrderFormat.LEGACY_AMOUNT)
+                            .unset(OrderFormat.LEGACY_TIME_STAMPS);
+                }
+                bulk.updateOne(
+                        new Query(Criteria.where("_id").is(order.get("_id"))
+                                .and("eventSequence").is(sequence)
+                                .and(Order.SCHEMA_VERSION_FIELD).ne(Order.SCHEMA_VERSION)),
+                        update
+                );
+                if (++pending == batchSize) {
+                    migrated += bulk.execute().getModifiedCount();
+                    pending = 0;
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ORDERS);
+                    Thread.sleep(batchPause.toMillis());
+                }
+            }
+        }
+        if (pending > 0) {
+            migrated += bulk.execute().getModifiedCount();
+        }
+        return migrated;
+    }
+}
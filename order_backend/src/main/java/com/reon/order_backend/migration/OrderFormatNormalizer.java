@@ -0,0 +1,15 @@
+package com.reon.order_backend.migration;
+
+import com.reon.order_backend.document.Order;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.stereotype.Component;
+
+// orders not migrated yet are converted to v2 before they are mapped, so the rest of the code only sees v2.
+@Component
+public class OrderFormatNormalizer extends AbstractMongoEventListener<Order> {
+    @Override
+    public void onAfterLoad(AfterLoadEvent<Order> event) {
+        OrderFormat.upgrade(event.getDocument());
+    }
+}
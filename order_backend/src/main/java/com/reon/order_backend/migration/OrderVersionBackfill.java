@@ -0,0 +1,46 @@
+package com.reon.order_backend.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/*
+one time migration: orders written before the version field existed get version 0.
+without it spring data would treat a loaded order as new and insert it again on save.
+a single updateMulti, migrated orders no longer match, so running it again is a no-op.
+ */
+@Component
+@Slf4j
+public class OrderVersionBackfill implements ApplicationRunner {
+    private static final String ORDERS = "orders";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${migration.order-version.enabled}")
+    private boolean enabled;
+
+    public OrderVersionBackfill(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long modified = mongoTemplate.updateMulti(
+                new Query(Criteria.where("version").exists(false)),
+                new Update().set("version", 0L),
+                ORDERS
+        ).getModifiedCount();
+        if (modified > 0) {
+            log.info("Order Version Backfill :: Set initial version on {} orders", modified);
+        }
+    }
+}
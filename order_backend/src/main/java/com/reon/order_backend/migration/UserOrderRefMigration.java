@@ -0,0 +1,95 @@
+package com.reon.order_backend.migration;
+
+import com.mongodb.DBRef;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+one time migration: converts the old "orderList" array of DBRefs on users into a plain "orderIds" array.
+users are streamed and rewritten in bounded batches; already migrated users no longer match the query,
+so an interrupted run simply continues on the next startup.
+ */
+@Component
+@Slf4j
+public class UserOrderRefMigration implements ApplicationRunner {
+    private static final String USERS = "users";
+    private static final String LEGACY_FIELD = "orderList";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${migration.user-order-refs.enabled}")
+    private boolean enabled;
+
+    @Value("${migration.batch-size}")
+    private int batchSize;
+
+    public UserOrderRefMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        Query query = new Query(Criteria.where(LEGACY_FIELD).exists(true));
+        query.fields().include(LEGACY_FIELD);
+
+        long migrated = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, USERS);
+        int pending = 0;
+
+        try (Stream<Document> users = mongoTemplate.stream(query, Document.class, USERS)) {
+            for (Document user : (Iterable<Document>) users::iterator) {
+                bulk.updateOne(
+                        new Query(Criteria.where("_id").is(user.get("_id"))),
+                        new Update().addToSet("orderIds").each(extractIds(user).toArray()).unset(LEGACY_FIELD)
+                );
+                if (++pending == batchSize) {
+                    bulk.execute();
+                    migrated += pending;
+                    pending = 0;
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, USERS);
+                }
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+            migrated += pending;
+        }
+        if (migrated > 0) {
+            log.info("User Order Ref Migration :: Migrated {} users to orderIds", migrated);
+        }
+    }
+
+    private List<ObjectId> extractIds(Document user) {
+        List<ObjectId> ids = new ArrayList<>();
+        Object refs = user.get(LEGACY_FIELD);
+        if (!(refs instanceof List<?> list)) {
+            return ids;
+        }
+        for (Object ref : list) {
+            Object id = ref instanceof DBRef dbRef ? dbRef.getId()
+                    : ref instanceof Document document ? document.get("$id")
+                    : null;
+            if (id instanceof ObjectId objectId) {
+                ids.add(objectId);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,91 @@
+package com.reon.order_backend.repository;
+
+import com.reon.order_backend.dto.page.CursorPage;
+import com.reon.order_backend.exception.InvalidCursorException;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+keyset (cursor) paging over (createdOn desc, _id desc). every slice is an index range scan starting right after
+the last row of the previous slice, so deep pages cost the same as the first one and no count query is run.
+the cursor is an opaque base64 token of the last row's createdOn and _id. documents without createdOn sort last.
+ */
+public final class KeysetQuery {
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final String SEPARATOR = "|";
+
+    private KeysetQuery() {
+    }
+
+    // fetches one row more than the page size, that row only tells whether a next slice exists
+    public static Query slice(Criteria filter, String cursor, int size) {
+        size = clamp(size);
+        Criteria criteria = filter;
+        if (cursor != null && !cursor.isBlank()) {
+            Position after = decode(cursor);
+            Criteria keyset = after.createdOn() == null
+                    ? new Criteria().andOperator(
+                            Criteria.where("createdOn").is(null), Criteria.where("_id").lt(after.id()))
+                    : new Criteria().orOperator(
+                            Criteria.where("createdOn").lt(after.createdOn()),
+                            new Criteria().andOperator(
+                                    Criteria.where("createdOn").is(after.createdOn()), Criteria.where("_id").lt(after.id())),
+                            Criteria.where("createdOn").is(null));
+            criteria = new Criteria().andOperator(filter, keyset);
+        }
+        return new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdOn", "_id"))
+                .limit(size + 1);
+    }
+
+    public static <T, R> CursorPage<R> page(List<T> rows, int size, Function<T, LocalDateTime> createdOn,
+                                            Function<T, ObjectId> id, Function<T, R> mapper) {
+        size = clamp(size);
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            T last = content.get(content.size() - 1);
+            nextCursor = encode(createdOn.apply(last), id.apply(last));
+        }
+        return CursorPage.<R>builder()
+                .content(content.stream().map(mapper).toList())
+                .size(content.size())
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
+
+    private static int clamp(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private static String encode(LocalDateTime createdOn, ObjectId id) {
+        String position = (createdOn != null ? createdOn.toString() : "") + SEPARATOR + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decode(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(SEPARATOR);
+            String createdOn = position.substring(0, separator);
+            return new Position(createdOn.isEmpty() ? null : LocalDateTime.parse(createdOn),
+                    new ObjectId(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid page cursor: " + cursor);
+        }
+    }
+
+    private record Position(LocalDateTime createdOn, ObjectId id) {
+    }
+}
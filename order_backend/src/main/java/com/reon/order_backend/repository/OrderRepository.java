@@ -5,6 +5,7 @@ import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -14,4 +15,11 @@ public interface OrderRepository extends MongoRepository<Order, ObjectId> {
     Page<Order> findByUserId(ObjectId userId, Pageable pageable);
 
     Optional<Order> findById(ObjectId id);
+
+    // version fields only, answers conditional reads without loading whole orders
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'userId': 1, 'eventSequence': 1, 'updateOn': 1 }")
+    Optional<Order> findVersionById(ObjectId id);
+
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'eventSequence': 1, 'updateOn': 1 }")
+    Page<Order> findVersionsByUserId(ObjectId userId, Pageable pageable);
 }
@@ -0,0 +1,10 @@
+package com.reon.order_backend.repository;
+
+import com.reon.order_backend.document.OrderSummary;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderSummaryRepository extends MongoRepository<OrderSummary, ObjectId> {
+}
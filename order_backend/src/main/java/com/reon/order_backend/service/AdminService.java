@@ -1,11 +1,15 @@
 package com.reon.order_backend.service;
 
+import com.reon.order_backend.dto.page.CursorPage;
+import com.reon.order_backend.dto.user.OrderRefReport;
 import com.reon.order_backend.dto.user.UserResponse;
 import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 
 public interface AdminService {
     Page<UserResponse> fetchAllUsers(int pageNo, int pageSize);
+    CursorPage<UserResponse> fetchUsersByCursor(String cursor, int pageSize);
     UserResponse fetchById(ObjectId id);
     UserResponse fetchByEmail(String email);
+    OrderRefReport checkOrderRefs(boolean repair);
 }
@@ -0,0 +1,12 @@
+package com.reon.order_backend.service;
+
+import com.reon.order_backend.document.OrderRollup;
+import com.reon.order_backend.dto.analytics.OrderRollupResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AnalyticsService {
+    List<OrderRollupResponse> fetchRollups(OrderRollup.Granularity granularity, LocalDateTime from, LocalDateTime to);
+    OrderRollupResponse fetchTotals(OrderRollup.Granularity granularity, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,12 @@
+package com.reon.order_backend.service;
+
+import com.reon.order_backend.dto.replay.ReplayJobResponse;
+import com.reon.order_backend.dto.replay.ReplayRequest;
+import org.bson.types.ObjectId;
+
+public interface FailedEventReplayService {
+    ReplayJobResponse startReplay(ReplayRequest request);
+    ReplayJobResponse fetchReplayJob(ObjectId jobId);
+    ReplayJobResponse resumeReplay(ObjectId jobId);
+    ReplayJobResponse pauseReplay(ObjectId jobId);
+}
@@ -1,16 +1,27 @@
 package com.reon.order_backend.service;
 
 import com.reon.order_backend.document.User;
+import com.reon.order_backend.dto.order.BulkOrderResponse;
+import com.reon.order_backend.dto.order.BulkStatusResponse;
 import com.reon.order_backend.dto.order.OrderCreation;
 import com.reon.order_backend.dto.order.OrderResponse;
 import com.reon.order_backend.dto.order.OrderUpdateStatus;
+import com.reon.order_backend.dto.order.StatusTransition;
+import com.reon.order_backend.dto.page.CursorPage;
 import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 
+import java.util.List;
+
 public interface OrderService {
     OrderResponse createOrder(OrderCreation orderCreation, ObjectId id);
+    BulkOrderResponse createOrders(List<OrderCreation> orderCreations, User user);
     Page<OrderResponse> fetchAllOrders(int pageNo, int pageSize, User user);
+    CursorPage<OrderResponse> fetchOrdersByCursor(String cursor, int pageSize, User user);
     void cancelOrder(ObjectId orderId, User user);
     OrderResponse updateOrder(ObjectId orderId, OrderUpdateStatus orderUpdateStatus, User user);
+    BulkStatusResponse updateOrders(List<StatusTransition> transitions, User user);
     OrderResponse fetchOrderViaId(ObjectId id, User user);
+    String fetchOrderETag(ObjectId id, User user);
+    String fetchOrdersETag(int pageNo, int pageSize, User user);
 }
@@ -0,0 +1,15 @@
+package com.reon.order_backend.service;
+
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.dto.summary.OrderSummaryResponse;
+import org.bson.types.ObjectId;
+
+public interface OrderSummaryService {
+    OrderSummaryResponse fetchSummary(ObjectId userId);
+
+    /*
+    apply an order event to the owner's summary, called by the summary consumer
+     */
+    void applyPlaced(OrderEventDTO event);
+    void applyStatus(OrderEventDTO event);
+}
@@ -0,0 +1,16 @@
+package com.reon.order_backend.service;
+
+import com.reon.order_backend.document.User;
+import com.reon.order_backend.dto.order.OrderResponse;
+import org.bson.types.ObjectId;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+
+public interface OrderTrackingService {
+    SseEmitter trackOrder(ObjectId orderId, User user, String lastEventId);
+    SseEmitter trackOrders(User user, String lastEventId);
+    DeferredResult<ResponseEntity<OrderResponse>> pollOrder(ObjectId orderId, User user, String ifNoneMatch, Duration timeout);
+}
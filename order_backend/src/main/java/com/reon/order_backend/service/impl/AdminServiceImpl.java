@@ -1,9 +1,14 @@
 package com.reon.order_backend.service.impl;
 
+import com.reon.order_backend.cache.UserCache;
+import com.reon.order_backend.document.Order;
 import com.reon.order_backend.document.User;
+import com.reon.order_backend.dto.page.CursorPage;
+import com.reon.order_backend.dto.user.OrderRefReport;
 import com.reon.order_backend.dto.user.UserResponse;
 import com.reon.order_backend.exception.UserNotFoundException;
 import com.reon.order_backend.mapper.UserMapper;
+import com.reon.order_backend.repository.KeysetQuery;
 import com.reon.order_backend.repository.UserRepository;
 import com.reon.order_backend.service.AdminService;
 import lombok.extern.slf4j.Slf4j;
@@ -11,17 +16,42 @@ import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
 @Service
 @Slf4j
 public class AdminServiceImpl implements AdminService {
+    private static final int SAMPLE_SIZE = 100;
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final MongoTemplate mongoTemplate;
+    private final UserCache userCache;
 
-    public AdminServiceImpl(UserRepository userRepository, UserMapper userMapper) {
+    @Value("${consistency.order-refs.batch-size}")
+    private int batchSize;
+
+    public AdminServiceImpl(UserRepository userRepository, UserMapper userMapper, MongoTemplate mongoTemplate,
+                            UserCache userCache) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
+        this.mongoTemplate = mongoTemplate;
+        this.userCache = userCache;
     }
 
     @Override
@@ -32,6 +62,14 @@ public class AdminServiceImpl implements AdminService {
         return users.map(userMapper::responseToUser);
     }
 
+    @Override
+    public CursorPage<UserResponse> fetchUsersByCursor(String cursor, int pageSize) {
+        log.info("Admin Service :: Fetching users after cursor: {}, size: {}", cursor, pageSize);
+        Query query = KeysetQuery.slice(new Criteria(), cursor, pageSize);
+        List<User> users = mongoTemplate.find(query, User.class);
+        return KeysetQuery.page(users, pageSize, User::getCreatedOn, User::getId, userMapper::responseToUser);
+    }
+
     @Override
     public UserResponse fetchById(ObjectId id) {
         log.info("Admin Service :: Fetching user with id: {}", id);
@@ -51,4 +89,85 @@ public class AdminServiceImpl implements AdminService {
         log.info("Admin Service :: Fetched user with email: {}", email);
         return userMapper.responseToUser(user);
     }
+
+    /*
+    compares users.orderIds with orders.userId. users are streamed with only their references, and for every batch
+    the orders of those users are read with one query on the userId index. with repair, each inconsistent user gets
+    one targeted update: dangling ids are pulled and missing ids added, the rest of the array is left untouched.
+     */
+    @Override
+    public OrderRefReport checkOrderRefs(boolean repair) {
+        log.info("Admin Service :: Checking order references of users, repair: {}", repair);
+        Query query = new Query().with(Sort.by("_id"));
+        query.fields().include("email").include("orderIds");
+
+        OrderRefReport report = OrderRefReport.builder()
+                .repaired(repair)
+                .sampleUserIds(new ArrayList<>())
+                .build();
+        List<User> batch = new ArrayList<>(batchSize);
+        try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+            for (User user : (Iterable<User>) users::iterator) {
+                batch.add(user);
+                if (batch.size() == batchSize) {
+                    checkBatch(batch, repair, report);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            checkBatch(batch, repair, report);
+        }
+        log.info("Admin Service :: Checked {} users, {} inconsistent ({} dangling, {} missing references)",
+                report.getUsersChecked(), report.getInconsistentUsers(), report.getDanglingRefs(), report.getMissingRefs());
+        return report;
+    }
+
+    private void checkBatch(List<User> users, boolean repair, OrderRefReport report) {
+        List<ObjectId> userIds = users.stream().map(User::getId).toList();
+        Query ordersQuery = new Query(Criteria.where("userId").in(userIds));
+        ordersQuery.fields().include("_id").include("userId");
+
+        Map<ObjectId, Set<ObjectId>> actual = new HashMap<>();
+        try (Stream<Order> orders = mongoTemplate.stream(ordersQuery, Order.class)) {
+            orders.forEach(order -> actual.computeIfAbsent(order.getUserId(), key -> new HashSet<>()).add(order.getId()));
+        }
+
+        BulkOperations bulk = repair ? mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class) : null;
+        List<String> repairedEmails = new ArrayList<>();
+        for (User user : users) {
+            Set<ObjectId> listed = user.getOrderIds() == null ? Set.of() : new HashSet<>(user.getOrderIds());
+            Set<ObjectId> owned = actual.getOrDefault(user.getId(), Set.of());
+
+            List<ObjectId> dangling = listed.stream().filter(id -> !owned.contains(id)).toList();
+            List<ObjectId> missing = owned.stream().filter(id -> !listed.contains(id)).toList();
+            report.setUsersChecked(report.getUsersChecked() + 1);
+            if (dangling.isEmpty() && missing.isEmpty()) {
+                continue;
+            }
+
+            report.setInconsistentUsers(report.getInconsistentUsers() + 1);
+            report.setDanglingRefs(report.getDanglingRefs() + dangling.size());
+            report.setMissingRefs(report.getMissingRefs() + missing.size());
+            if (report.getSampleUserIds().size() < SAMPLE_SIZE) {
+                report.getSampleUserIds().add(user.getId().toHexString());
+            }
+            if (bulk == null) {
+                continue;
+            }
+            // $pullAll and $addToSet on the same field are rejected in one update, so they are two operations
+            Query byId = new Query(Criteria.where("_id").is(user.getId()));
+            if (!dangling.isEmpty()) {
+                bulk.updateOne(byId, new Update().pullAll("orderIds", dangling.toArray()));
+            }
+            if (!missing.isEmpty()) {
+                bulk.updateOne(byId, new Update().addToSet("orderIds").each(missing.toArray()));
+            }
+            repairedEmails.add(user.getEmail());
+        }
+        if (bulk != null && !repairedEmails.isEmpty()) {
+            bulk.execute();
+            repairedEmails.forEach(userCache::evict);
+        }
+    }
 }
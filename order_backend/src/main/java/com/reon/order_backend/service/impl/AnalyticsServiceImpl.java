@@ -0,0 +1,100 @@
+package com.reon.order_backend.service.impl;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.OrderRollup;
+import com.reon.order_backend.dto.analytics.OrderRollupResponse;
+import com.reon.order_backend.exception.InvalidAnalyticsRangeException;
+import com.reon.order_backend.mapper.OrderRollupMapper;
+import com.reon.order_backend.service.AnalyticsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+reads the precomputed rollups through the (granularity, bucketStart) index, orders is never scanned.
+the newest buckets lag behind by at most one flush of the rollup buffer.
+ */
+@Service
+@Slf4j
+public class AnalyticsServiceImpl implements AnalyticsService {
+    private final MongoTemplate mongoTemplate;
+    private final OrderRollupMapper orderRollupMapper;
+
+    @Value("${analytics.rollup.max-points}")
+    private int maxPoints;
+
+    public AnalyticsServiceImpl(MongoTemplate mongoTemplate, OrderRollupMapper orderRollupMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.orderRollupMapper = orderRollupMapper;
+    }
+
+    @Override
+    public List<OrderRollupResponse> fetchRollups(OrderRollup.Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        log.info("Analytics Service :: Fetching {} rollups from: {} to: {}", granularity, from, to);
+        return find(granularity, from, to).stream()
+                .map(orderRollupMapper::rollupResponse)
+                .toList();
+    }
+
+    @Override
+    public OrderRollupResponse fetchTotals(OrderRollup.Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        log.info("Analytics Service :: Fetching totals of {} rollups from: {} to: {}", granularity, from, to);
+        List<OrderRollup> rollups = find(granularity, from, to);
+
+        long placed = 0;
+        long revenue = 0;
+        long cancelledRevenue = 0;
+        Map<Order.Status, Long> statusCounts = new EnumMap<>(Order.Status.class);
+        Map<String, Long> transitions = new TreeMap<>();
+        for (OrderRollup rollup : rollups) {
+            placed += rollup.getPlaced();
+            revenue += rollup.getRevenueMinor();
+            cancelledRevenue += rollup.getCancelledRevenueMinor();
+            rollup.getStatusCounts().forEach((status, count) -> statusCounts.merge(Order.Status.valueOf(status), count, Long::sum));
+            rollup.getTransitions().forEach((transition, count) -> transitions.merge(transition, count, Long::sum));
+        }
+        return OrderRollupResponse.builder()
+                .granularity(granularity)
+                .bucketStart(rollups.isEmpty() ? null : rollups.get(0).getBucketStart())
+                .placed(placed)
+                .statusCounts(statusCounts)
+                .transitions(transitions)
+                .revenue(Order.fromMinorUnits(revenue))
+                .cancelledRevenue(Order.fromMinorUnits(cancelledRevenue))
+                .build();
+    }
+
+    private List<OrderRollup> find(OrderRollup.Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minus(defaultBuckets(granularity), granularity.unit());
+        if (start.isAfter(end)) {
+            throw new InvalidAnalyticsRangeException("from " + start + " is after to " + end);
+        }
+        if (granularity.unit().between(start, end) > maxPoints) {
+            throw new InvalidAnalyticsRangeException("Range exceeds " + maxPoints + " " + granularity + " buckets");
+        }
+        Query query = new Query(Criteria.where("granularity").is(granularity)
+                .and("bucketStart").gte(granularity.bucketOf(start)).lte(end))
+                .with(Sort.by("bucketStart"));
+        return mongoTemplate.find(query, OrderRollup.class);
+    }
+
+    // last hour by minute, last day by hour, last 30 days by day
+    private static long defaultBuckets(OrderRollup.Granularity granularity) {
+        return switch (granularity) {
+            case MINUTE -> 60;
+            case HOUR -> 24;
+            case DAY -> 30;
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.reon.order_backend.service.impl;
 
+import com.reon.order_backend.cache.UserCache;
 import com.reon.order_backend.document.User;
 import com.reon.order_backend.exception.UserNotFoundException;
 import com.reon.order_backend.repository.UserRepository;
@@ -13,17 +14,21 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class CustomUserDetailService implements UserDetailsService {
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
-    public CustomUserDetailService(UserRepository userRepository) {
+    public CustomUserDetailService(UserRepository userRepository, UserCache userCache) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) {
         log.info("Custom User Detail Service :: loadUserByEmail: {}", email);
-        User user = userRepository.findByEmail(email).orElseThrow(
-                () -> new UserNotFoundException("User not found with provided email.")
-        );
-        return user;
+        return userCache.get(email, key -> {
+            log.info("Custom User Detail Service :: Cache miss, loading user from database: {}", key);
+            return userRepository.findByEmail(key).orElseThrow(
+                    () -> new UserNotFoundException("User not found with provided email.")
+            );
+        });
     }
 }
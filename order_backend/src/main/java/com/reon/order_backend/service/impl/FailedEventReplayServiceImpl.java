@@ -0,0 +1,287 @@
+package com.reon.order_backend.service.impl;
+
+import com.reon.order_backend.document.FailedEvent;
+import com.reon.order_backend.document.ReplayJob;
+import com.reon.order_backend.dto.replay.ReplayJobResponse;
+import com.reon.order_backend.dto.replay.ReplayRequest;
+import com.reon.order_backend.exception.ReplayJobNotFoundException;
+import com.reon.order_backend.kafka.ReplayTargetFilter;
+import com.reon.order_backend.kafka.consumer.OrderStatusConsumer;
+import com.reon.order_backend.mapper.ReplayJobMapper;
+import com.reon.order_backend.repository.ReplayJobRepository;
+import com.reon.order_backend.service.FailedEventReplayService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/*
+re-publishes failed events to their original topic, addressed to the consumer group that failed on them
+(ReplayTargetFilter makes every other group skip them). the matching events are streamed from a single
+cursor in _id order, sent in batches of at most one second's worth of the configured rate, and the job
+is checkpointed after every batch, so a paused, failed or interrupted job resumes where it stopped.
+ */
+@Service
+@Slf4j
+public class FailedEventReplayServiceImpl implements FailedEventReplayService {
+    private final ReplayJobRepository replayJobRepository;
+    private final ReplayJobMapper replayJobMapper;
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final Duration sendTimeout;
+    private final ExecutorService executor;
+
+    // jobs running on this node, and the ones asked to stop after their current batch
+    private final Set<ObjectId> activeJobs = ConcurrentHashMap.newKeySet();
+    private final Set<ObjectId> pauseRequests = ConcurrentHashMap.newKeySet();
+
+    public FailedEventReplayServiceImpl(ReplayJobRepository replayJobRepository, ReplayJobMapper replayJobMapper,
+                                        MongoTemplate mongoTemplate, KafkaTemplate<String, Object> kafkaTemplate,
+                                        @Value("${replay.max-concurrent-jobs}") int maxConcurrentJobs,
+                                        @Value("${replay.send-timeout}") Duration sendTimeout) {
+        this.replayJobRepository = replayJobRepository;
+        this.replayJobMapper = replayJobMapper;
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.sendTimeout = sendTimeout;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrentJobs, runnable -> {
+            Thread thread = new Thread(runnable, "failed-event-replay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public ReplayJobResponse startReplay(ReplayRequest request) {
+        ReplayJob job = replayJobMapper.mapToEntity(request);
+        LocalDateTime now = LocalDateTime.now();
+        job.setStatus(ReplayJob.Status.RUNNING);
+        job.setCreatedOn(now);
+        job.setUpdatedOn(now);
+        ReplayJob savedJob = replayJobRepository.save(job);
+        log.info("Replay Service :: Started replay job: {}", savedJob.getId());
+        submit(savedJob);
+        return replayJobMapper.replayJobResponse(savedJob);
+    }
+
+    @Override
+    public ReplayJobResponse fetchReplayJob(ObjectId jobId) {
+        return replayJobMapper.replayJobResponse(findJob(jobId));
+    }
+
+    @Override
+    public ReplayJobResponse resumeReplay(ObjectId jobId) {
+        ReplayJob job = findJob(jobId);
+        if (job.getStatus() == ReplayJob.Status.COMPLETED || activeJobs.contains(jobId)) {
+            log.info("Replay Service :: Replay job {} is {}, nothing to resume", jobId,
+                    activeJobs.contains(jobId) ? "already running" : "completed");
+            return replayJobMapper.replayJobResponse(job);
+        }
+        // a job left RUNNING by a node that went down is resumed like a paused one
+        job.setStatus(ReplayJob.Status.RUNNING);
+        job.setLastError(null);
+        job.setUpdatedOn(LocalDateTime.now());
+        ReplayJob savedJob = replayJobRepository.save(job);
+        log.info("Replay Service :: Resuming replay job {} after: {}", jobId, job.getLastProcessedId());
+        submit(savedJob);
+        return replayJobMapper.replayJobResponse(savedJob);
+    }
+
+    @Override
+    public ReplayJobResponse pauseReplay(ObjectId jobId) {
+        ReplayJob job = findJob(jobId);
+        if (activeJobs.contains(jobId)) {
+            // the worker stops after the batch in flight and records the PAUSED status itself
+            pauseRequests.add(jobId);
+            log.info("Replay Service :: Pause requested for replay job: {}", jobId);
+        } else if (job.getStatus() == ReplayJob.Status.RUNNING) {
+            job.setStatus(ReplayJob.Status.PAUSED);
+            job.setUpdatedOn(LocalDateTime.now());
+            job = replayJobRepository.save(job);
+        }
+        return replayJobMapper.replayJobResponse(job);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // interrupted jobs are checkpointed as PAUSED and can be resumed after the restart
+        executor.shutdownNow();
+    }
+
+    private ReplayJob findJob(ObjectId jobId) {
+        return replayJobRepository.findById(jobId).orElseThrow(
+                () -> new ReplayJobNotFoundException("Replay job not found with id: " + jobId)
+        );
+    }
+
+    private void submit(ReplayJob job) {
+        if (!activeJobs.add(job.getId())) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                run(job);
+            } finally {
+                pauseRequests.remove(job.getId());
+                activeJobs.remove(job.getId());
+            }
+        });
+    }
+
+    private void run(ReplayJob job) {
+        int batchSize = Math.min(job.getBatchSize(), job.getRatePerSecond());
+        long nanosPerEvent = TimeUnit.SECONDS.toNanos(1) / job.getRatePerSecond();
+        List<FailedEvent> batch = new ArrayList<>(batchSize);
+        try (Stream<FailedEvent> events = mongoTemplate.stream(replayQuery(job), FailedEvent.class)) {
+            Iterator<FailedEvent> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() < batchSize && iterator.hasNext()) {
+                    continue;
+                }
+                long batchStart = System.nanoTime();
+                if (!publishBatch(job, batch)) {
+                    return;
+                }
+                batch.clear();
+                if (pauseRequests.contains(job.getId())) {
+                    finish(job, ReplayJob.Status.PAUSED, null);
+                    return;
+                }
+                // keeps the job under its rate, a batch never holds more than one second of events
+                long remaining = nanosPerEvent * batchSize - (System.nanoTime() - batchStart);
+                if (remaining > 0) {
+                    TimeUnit.NANOSECONDS.sleep(remaining);
+                }
+            }
+            finish(job, ReplayJob.Status.COMPLETED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(job, ReplayJob.Status.PAUSED, "Interrupted by shutdown");
+        } catch (RuntimeException e) {
+            log.error("Replay Service :: Replay job {} failed: {}", job.getId(), e.getMessage());
+            finish(job, ReplayJob.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private Query replayQuery(ReplayJob job) {
+        Criteria criteria = Criteria.where("replayedAt").is(null);
+        if (job.getLastProcessedId() != null) {
+            criteria.and("_id").gt(job.getLastProcessedId());
+        }
+        if (StringUtils.hasText(job.getTopic())) {
+            criteria.and("topic").is(job.getTopic());
+        }
+        if (job.getFrom() != null || job.getTo() != null) {
+            Criteria failedAt = criteria.and("failedAt");
+            if (job.getFrom() != null) {
+                failedAt.gte(job.getFrom());
+            }
+            if (job.getTo() != null) {
+                failedAt.lt(job.getTo());
+            }
+        }
+        if (StringUtils.hasText(job.getErrorContains())) {
+            criteria.and("errorMessage").regex(Pattern.quote(job.getErrorContains()), "i");
+        }
+        return new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(job.getBatchSize());
+    }
+
+    /*
+    sends the batch and waits for the broker acks. the checkpoint only moves past the acknowledged prefix
+    of the batch, events acknowledged after a failed one are marked as replayed and skipped on resume.
+     */
+    private boolean publishBatch(ReplayJob job, List<FailedEvent> batch) {
+        List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(batch.size());
+        for (FailedEvent event : batch) {
+            ProducerRecord<String, Object> replay = new ProducerRecord<>(event.getTopic(),
+                    event.getPayload().getOrderId().toHexString(), event.getPayload());
+            replay.headers().add(ReplayTargetFilter.REPLAY_TARGET_HEADER,
+                    targetGroup(event).getBytes(StandardCharsets.UTF_8));
+            sends.add(kafkaTemplate.send(replay));
+        }
+        kafkaTemplate.flush();
+
+        List<ObjectId> replayed = new ArrayList<>(batch.size());
+        ObjectId checkpoint = job.getLastProcessedId();
+        String error = null;
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                sends.get(i).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                replayed.add(batch.get(i).getId());
+                if (error == null) {
+                    checkpoint = batch.get(i).getId();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = "Interrupted by shutdown";
+                break;
+            } catch (Exception e) {
+                log.error("Replay Service :: Kafka send failed for failed event {}: {}",
+                        batch.get(i).getId(), e.getMessage());
+                if (error == null) {
+                    error = String.valueOf(e.getMessage());
+                }
+            }
+        }
+        if (!replayed.isEmpty()) {
+            mongoTemplate.updateMulti(
+                    new Query(Criteria.where("_id").in(replayed)),
+                    new Update().set("replayedAt", LocalDateTime.now()),
+                    FailedEvent.class
+            );
+        }
+        job.setLastProcessedId(checkpoint);
+        job.setReplayedCount(job.getReplayedCount() + replayed.size());
+        if (error != null) {
+            finish(job, Thread.currentThread().isInterrupted() ? ReplayJob.Status.PAUSED : ReplayJob.Status.FAILED, error);
+            return false;
+        }
+        job.setUpdatedOn(LocalDateTime.now());
+        replayJobRepository.save(job);
+        log.debug("Replay Service :: Replay job {} re-published {} events", job.getId(), job.getReplayedCount());
+        return true;
+    }
+
+    // events recorded before the group was stored can only come from the email consumers, the only ones with a dlt
+    private static String targetGroup(FailedEvent event) {
+        return event.getConsumerGroup() != null ? event.getConsumerGroup() : OrderStatusConsumer.GROUP_ID;
+    }
+
+    private void finish(ReplayJob job, ReplayJob.Status status, String error) {
+        job.setStatus(status);
+        job.setLastError(error);
+        job.setUpdatedOn(LocalDateTime.now());
+        replayJobRepository.save(job);
+        log.info("Replay Service :: Replay job {} {} after {} events", job.getId(), status, job.getReplayedCount());
+    }
+}
@@ -1,133 +1,364 @@
 package com.reon.order_backend.service.impl;
 
+import com.reon.order_backend.cache.UserCache;
 import com.reon.order_backend.document.Order;
 import com.reon.order_backend.document.User;
 import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.dto.order.BulkOrderResponse;
+import com.reon.order_backend.dto.order.BulkOrderResult;
+import com.reon.order_backend.dto.order.BulkStatusResponse;
 import com.reon.order_backend.dto.order.OrderCreation;
 import com.reon.order_backend.dto.order.OrderResponse;
 import com.reon.order_backend.dto.order.OrderUpdateStatus;
+import com.reon.order_backend.dto.order.StatusTransition;
+import com.reon.order_backend.dto.order.StatusTransitionResult;
+import com.reon.order_backend.dto.page.CursorPage;
+import com.reon.order_backend.exception.ConcurrentOrderUpdateException;
 import com.reon.order_backend.exception.OrderNotCancellableException;
 import com.reon.order_backend.exception.OrderNotFoundException;
 import com.reon.order_backend.exception.UserNotFoundException;
+import com.reon.order_backend.kafka.KafkaTopicConfig;
+import com.reon.order_backend.kafka.producer.OrderEventPublisher;
 import com.reon.order_backend.mapper.OrderMapper;
+import com.reon.order_backend.repository.KeysetQuery;
 import com.reon.order_backend.repository.OrderRepository;
 import com.reon.order_backend.repository.UserRepository;
 import com.reon.order_backend.service.OrderService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.TransientMongoDbException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class OrderServiceImpl implements OrderService {
+    private static final int TRANSITION_CHUNK_SIZE = 1000;
+    private static final int TRANSITION_ATTEMPTS = 3;
+    // pages and their etags must see the same order, natural order is not stable (served by user_created_idx)
+    private static final Sort USER_ORDERS_SORT = Sort.by(Sort.Direction.DESC, "createdOn", "_id");
+
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OrderEventPublisher orderEventPublisher;
+    private final UserCache userCache;
+    private final MongoTemplate mongoTemplate;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
 
     public OrderServiceImpl(OrderRepository orderRepository, UserRepository userRepository,
-                            KafkaTemplate<String, Object> kafkaTemplate) {
+                            OrderEventPublisher orderEventPublisher, UserCache userCache,
+                            MongoTemplate mongoTemplate, Validator validator, TransactionTemplate transactionTemplate) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
-        this.kafkaTemplate = kafkaTemplate;
+        this.orderEventPublisher = orderEventPublisher;
+        this.userCache = userCache;
+        this.mongoTemplate = mongoTemplate;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
     }
 
+    // the order, the user's reference and the outbox row are committed together
     @Override
+    @Transactional
     public OrderResponse createOrder(OrderCreation orderCreation, ObjectId id) {
         log.info("Order Service :: Order creation in progress..");
         Order order = OrderMapper.mapOrderToEntity(orderCreation);
         order.setUserId(id);
         order.setStatus(Order.Status.PENDING);
-
-        Map<String, LocalDateTime> timeStamp = new HashMap<>();
-        timeStamp.put(Order.Status.PENDING.name(), LocalDateTime.now());
-        order.setTimeStamps(timeStamp);
+        order.setEventSequence(0L);
+        order.stamp(Order.Status.PENDING, LocalDateTime.now());
 
         Order saveOrder = orderRepository.save(order);
 
-        User user = userRepository.findById(id).orElseThrow(
-                () -> new UserNotFoundException("User with provided detail not found.")
-        );
-        user.getOrderList().add(saveOrder);
-        userRepository.save(user);
+        // add the reference in place (a no-op if it is there already), only the email comes back instead of the whole user with all its references
+        Query owner = new Query(Criteria.where("_id").is(id));
+        owner.fields().include("email");
+        User user = mongoTemplate.findAndModify(owner, new Update().addToSet("orderIds", saveOrder.getId()), User.class);
+        if (user == null) {
+            // rolls the order back with the transaction
+            throw new UserNotFoundException("User with provided detail not found.");
+        }
+        userCache.evict(user.getEmail());
 
-        // Once's orders gets saved in database a new event will be generated and send to kafka topic
+        // Once's orders gets saved in database a new event is recorded in the outbox, the relay sends it to kafka
         OrderEventDTO eventDTO = OrderEventDTO.builder()
                 .orderId(saveOrder.getId())
                 .userId(user.getId())
                 .email(user.getEmail())
                 .eventCreationTime(LocalDateTime.now())
                 .items(saveOrder.getItems())
-                .amount(saveOrder.getAmount())
+                .amount(saveOrder.amount())
                 .status(saveOrder.getStatus())
+                .sequence(saveOrder.getEventSequence())
                 .build();
 
-        CompletableFuture<SendResult<String, Object>> orderEvent = kafkaTemplate.send("order_event", eventDTO);
-        orderEvent.exceptionally(e -> {
-            log.error("Kafka send failed for order event: {}", e.getMessage());
-            return null;
-        });
-        log.info("Order Service :: Order event sent.. {}", orderEvent.join());
+        orderEventPublisher.publish(KafkaTopicConfig.ORDER_EVENT, eventDTO);
+        log.info("Order Service :: Order event recorded for order: {}", saveOrder.getId());
 
         return OrderMapper.orderResponseToUser(saveOrder);
     }
 
+    /*
+    bulk variant of createOrder: the valid orders are inserted with one insertMany, their ids pushed to the
+    user with a single update and their events recorded in the outbox with one insert, all in one transaction.
+     */
+    @Override
+    @Transactional
+    public BulkOrderResponse createOrders(List<OrderCreation> orderCreations, User user) {
+        log.info("Order Service :: Bulk creation of {} orders for user: {}", orderCreations.size(), user.getId());
+        if (!userRepository.existsById(user.getId())) {
+            throw new UserNotFoundException("User with provided detail not found.");
+        }
+
+        BulkOrderResult[] results = new BulkOrderResult[orderCreations.size()];
+        List<Order> orders = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < orderCreations.size(); i++) {
+            OrderCreation orderCreation = orderCreations.get(i);
+            Map<String, String> errors = validate(orderCreation);
+            if (!errors.isEmpty()) {
+                results[i] = BulkOrderResult.builder().index(i).created(false).errors(errors).build();
+                continue;
+            }
+            Order order = OrderMapper.mapOrderToEntity(orderCreation);
+            order.setUserId(user.getId());
+            order.setStatus(Order.Status.PENDING);
+            order.setEventSequence(0L);
+            order.stamp(Order.Status.PENDING, now);
+            orders.add(order);
+            positions.add(i);
+        }
+
+        if (!orders.isEmpty()) {
+            List<Order> savedOrders = new ArrayList<>(mongoTemplate.insertAll(orders));
+            List<ObjectId> orderIds = savedOrders.stream().map(Order::getId).toList();
+            mongoTemplate.updateFirst(
+                    new Query(Criteria.where("_id").is(user.getId())),
+                    new Update().addToSet("orderIds").each(orderIds.toArray()),
+                    User.class
+            );
+            userCache.evict(user.getEmail());
+
+            List<OrderEventDTO> events = new ArrayList<>(savedOrders.size());
+            for (int i = 0; i < savedOrders.size(); i++) {
+                Order saveOrder = savedOrders.get(i);
+                events.add(OrderEventDTO.builder()
+                        .orderId(saveOrder.getId())
+                        .userId(user.getId())
+                        .email(user.getEmail())
+                        .eventCreationTime(now)
+                        .items(saveOrder.getItems())
+                        .amount(saveOrder.amount())
+                        .status(saveOrder.getStatus())
+                        .sequence(saveOrder.getEventSequence())
+                        .build());
+                int index = positions.get(i);
+                results[index] = BulkOrderResult.builder()
+                        .index(index)
+                        .created(true)
+                        .order(OrderMapper.orderResponseToUser(saveOrder))
+                        .build();
+            }
+            orderEventPublisher.publishAll(KafkaTopicConfig.ORDER_EVENT, events);
+        }
+
+        log.info("Order Service :: Bulk creation done, {} created, {} rejected",
+                orders.size(), orderCreations.size() - orders.size());
+        return BulkOrderResponse.builder()
+                .created(orders.size())
+                .rejected(orderCreations.size() - orders.size())
+                .results(List.of(results))
+                .build();
+    }
+
+    private Map<String, String> validate(OrderCreation orderCreation) {
+        Map<String, String> errors = new HashMap<>();
+        if (orderCreation == null) {
+            errors.put("order", "Order must not be empty");
+            return errors;
+        }
+        for (ConstraintViolation<OrderCreation> violation : validator.validate(orderCreation)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+
     @Override
     public Page<OrderResponse> fetchAllOrders(int pageNo, int pageSize, User user) {
         log.info("Order Service :: Fetching orders for user ID: {}, page: {}, size: {}", user.getId(), pageNo, pageSize);
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, USER_ORDERS_SORT);
         Page<Order> orders = orderRepository.findByUserId(user.getId(), pageable);
         return orders.map(OrderMapper::orderResponseToUser);
     }
 
     @Override
+    public CursorPage<OrderResponse> fetchOrdersByCursor(String cursor, int pageSize, User user) {
+        log.info("Order Service :: Fetching orders for user ID: {} after cursor: {}, size: {}", user.getId(), cursor, pageSize);
+        Query query = KeysetQuery.slice(Criteria.where("userId").is(user.getId()), cursor, pageSize);
+        List<Order> orders = mongoTemplate.find(query, Order.class);
+        return KeysetQuery.page(orders, pageSize, Order::getCreatedOn, Order::getId, OrderMapper::orderResponseToUser);
+    }
+
+    @Override
+    @Transactional
     public void cancelOrder(ObjectId orderId, User user) {
         log.warn("Order Service :: Cancelling order with id: {}", orderId);
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> {
-                    log.warn("Order Service :: Order not found with id: {}", orderId);
-                    return new OrderNotFoundException("Order not found with id: " + orderId);
-                });
+        // deleted in one step only if it is the user's order and still cancellable
+        Order order = mongoTemplate.findAndRemove(
+                new Query(Criteria.where("_id").is(orderId)
+                        .and("userId").is(user.getId())
+                        .and("status").in(OrderTransitions.CANCELLABLE)),
+                Order.class
+        );
 
-        if (!order.getUserId().equals(user.getId())) {
-            log.warn("Order Service :: Unauthorized access. Order {} belongs to a different user.", orderId);
-            throw new OrderNotFoundException("You do not own this order.");
-        }
+        if (order == null) {
+            Order existing = orderRepository.findById(orderId)
+                    .orElseThrow(() -> {
+                        log.warn("Order Service :: Order not found with id: {}", orderId);
+                        return new OrderNotFoundException("Order not found with id: " + orderId);
+                    });
 
-        // Prevent deleting orders that have reached terminal or delivery stages
-        if (!isOrderCancellable(order.getStatus())) {
-            log.warn("Order Service :: Attempt to delete order {} in non-cancellable state: {}", orderId, order.getStatus());
+            if (!existing.getUserId().equals(user.getId())) {
+                log.warn("Order Service :: Unauthorized access. Order {} belongs to a different user.", orderId);
+                throw new OrderNotFoundException("You do not own this order.");
+            }
+
+            // Prevent deleting orders that have reached terminal or delivery stages
+            log.warn("Order Service :: Attempt to delete order {} in non-cancellable state: {}", orderId, existing.getStatus());
             throw new OrderNotCancellableException(
-                    "Cannot cancel or delete order once it is " + order.getStatus()
+                    "Cannot cancel or delete order once it is " + existing.getStatus()
             );
         }
-
-        orderRepository.deleteById(orderId);
         log.info("Order Service :: Order deleted from database: {}", orderId);
 
-        boolean removed = user.getOrderList().removeIf(o -> o.getId().equals(orderId));
-        if (removed) {
-            userRepository.save(user);
+        // pull just this reference, the user document is neither loaded nor rewritten
+        long removed = mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(user.getId())),
+                new Update().pull("orderIds", orderId),
+                User.class
+        ).getModifiedCount();
+        if (removed > 0) {
+            userCache.evict(user.getEmail());
             log.info("Order Service :: Order reference removed from user: {}", user.getEmail());
         } else {
             log.warn("Order Service :: Order reference not found in user's list: {}", orderId);
         }
 
+        // the order is gone, so unlike other status events this one carries owner, email and amount itself
+        Long sequence = order.getEventSequence();
+        OrderEventDTO cancelledEvent = OrderEventDTO.builder()
+                .orderId(orderId)
+                .userId(user.getId())
+                .email(user.getEmail())
+                .eventCreationTime(LocalDateTime.now())
+                .amount(order.amount())
+                .status(Order.Status.CANCELLED)
+                .previousStatus(order.getStatus())
+                .sequence(sequence == null ? 1L : sequence + 1)
+                .build();
+        orderEventPublisher.publish(KafkaTopicConfig.ORDER_UPDATE_EVENT, cancelledEvent);
+
         log.info("Order Service :: Cancellation completed for orderId: {}", orderId);
     }
 
+    /*
+    a single findAndModify, filtered on owner and on the statuses the target may be reached from, so the rule
+    check and the write are one atomic operation. the order is only read again when nothing matched, to tell why.
+    each attempt commits the update and its outbox row in one transaction, a write conflict with another
+    transaction rolls both back and counts as an attempt.
+     */
     @Override
     public OrderResponse updateOrder(ObjectId orderId, OrderUpdateStatus orderUpdateStatus, User user) {
         log.info("Order Service :: Updating order with id: {}", orderId);
+        Order.Status newStatus = orderUpdateStatus.getStatus();
+
+        Order updatedOrder = null;
+        for (int attempt = 0; attempt < TRANSITION_ATTEMPTS && updatedOrder == null; attempt++) {
+            try {
+                updatedOrder = transactionTemplate.execute(tx -> transition(orderId, newStatus, user));
+            } catch (TransientMongoDbException e) {
+                log.debug("Order Service :: Concurrent write on order {}, retrying: {}", orderId, e.getMessage());
+                continue;
+            }
+            if (updatedOrder == null) {
+                // throws when the transition is not allowed, returns when the status changed in between
+                checkTransition(orderId, newStatus, user);
+            }
+        }
+        if (updatedOrder == null) {
+            throw new ConcurrentOrderUpdateException("Order " + orderId + " is being updated concurrently, try again.");
+        }
+        log.info("Order Service :: Order update event recorded for status: {}", newStatus);
+
+        return OrderMapper.orderResponseToUser(updatedOrder);
+    }
+
+    // one attempt of updateOrder, returns the updated order or null when the filter did not match
+    private Order transition(ObjectId orderId, Order.Status newStatus, User user) {
+        LocalDateTime now = LocalDateTime.now();
+        // the order as it was before the update, so the event can tell which status it left
+        Order updatedOrder = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(orderId)
+                        .and("userId").is(user.getId())
+                        .and("status").in(OrderTransitions.allowedFrom(newStatus))),
+                new Update()
+                        .set("status", newStatus)
+                        .set(Order.statusTimesPath(newStatus), Order.toEpochMillis(now))
+                        .set("updateOn", now)
+                        // orders created before sequencing have no sequence, $inc starts them at 1
+                        .inc("eventSequence", 1)
+                        .inc("version", 1),
+                Order.class
+        );
+        if (updatedOrder == null) {
+            return null;
+        }
+        // apply the same update to the returned copy
+        Order.Status previousStatus = updatedOrder.getStatus();
+        Long sequence = updatedOrder.getEventSequence();
+        Long version = updatedOrder.getVersion();
+        updatedOrder.setStatus(newStatus);
+        updatedOrder.stamp(newStatus, now);
+        updatedOrder.setUpdateOn(now);
+        updatedOrder.setEventSequence(sequence == null ? 1L : sequence + 1);
+        updatedOrder.setVersion(version == null ? 1L : version + 1);
+
+        // status events carry the delta only, consumers know the rest of the order from its placed event
+        OrderEventDTO updatedEvent = OrderEventDTO.builder()
+                .orderId(updatedOrder.getId())
+                .eventCreationTime(now)
+                .status(newStatus)
+                .previousStatus(previousStatus)
+                .sequence(updatedOrder.getEventSequence())
+                .build();
+        orderEventPublisher.publish(KafkaTopicConfig.ORDER_UPDATE_EVENT, updatedEvent);
+        return updatedOrder;
+    }
+
+    private void checkTransition(ObjectId orderId, Order.Status newStatus, User user) {
         Order order = orderRepository.findById(orderId).orElseThrow(
                 () -> new OrderNotFoundException("Order not found with id: " + orderId)
         );
@@ -136,43 +367,184 @@ public class OrderServiceImpl implements OrderService {
             throw new OrderNotFoundException("Order not found with id: " + orderId);
         }
 
-        Order.Status newStatus = getStatus(orderUpdateStatus, order);
+        getStatus(new OrderUpdateStatus(newStatus), order);
+    }
 
-        order.setStatus(newStatus);
-        Map<String, LocalDateTime> timeStamps = order.getTimeStamps();
-        if (timeStamps == null) {
-            timeStamps = new HashMap<>();
+    /*
+    bulk variant of updateOrder, applied in chunks. per chunk: one read of the current orders, one bulkWrite of
+    updates conditioned on the status and sequence that were read, one read back of the updated orders and one
+    outbox insert for the events. transitions are validated one by one, an invalid one does not fail the others.
+     */
+    @Override
+    public BulkStatusResponse updateOrders(List<StatusTransition> transitions, User user) {
+        log.info("Order Service :: Bulk status update of {} orders for user: {}", transitions.size(), user.getId());
+        StatusTransitionResult[] results = new StatusTransitionResult[transitions.size()];
+        Set<ObjectId> seen = new HashSet<>();
+        for (int from = 0; from < transitions.size(); from += TRANSITION_CHUNK_SIZE) {
+            applyTransitions(transitions, from, Math.min(from + TRANSITION_CHUNK_SIZE, transitions.size()),
+                    user, seen, results);
+        }
+        int updated = 0;
+        for (StatusTransitionResult result : results) {
+            if (result.getOutcome() == StatusTransitionResult.Outcome.UPDATED) {
+                updated++;
+            }
         }
-        timeStamps.put(newStatus.name(), LocalDateTime.now());
-        order.setTimeStamps(timeStamps);
-        order.setUpdateOn(LocalDateTime.now());
+        log.info("Order Service :: Bulk status update done, {} updated, {} failed", updated, results.length - updated);
+        return BulkStatusResponse.builder()
+                .updated(updated)
+                .failed(results.length - updated)
+                .results(List.of(results))
+                .build();
+    }
 
-        Order updatedOrder = orderRepository.save(order);
+    private void applyTransitions(List<StatusTransition> transitions, int from, int to, User user,
+                                  Set<ObjectId> seen, StatusTransitionResult[] results) {
+        Map<ObjectId, Integer> positions = new LinkedHashMap<>();
+        for (int i = from; i < to; i++) {
+            StatusTransition transition = transitions.get(i);
+            String invalid = invalidTransition(transition);
+            String orderId = transition != null ? transition.getOrderId() : null;
+            if (invalid != null) {
+                results[i] = transitionResult(orderId, StatusTransitionResult.Outcome.INVALID, null, invalid);
+            } else if (!seen.add(new ObjectId(orderId))) {
+                results[i] = transitionResult(orderId, StatusTransitionResult.Outcome.REJECTED, null,
+                        "Order appears more than once in the request");
+            } else {
+                positions.put(new ObjectId(orderId), i);
+            }
+        }
+        if (positions.isEmpty()) {
+            return;
+        }
 
-        OrderEventDTO updatedEvent = OrderEventDTO.builder()
-                .orderId(updatedOrder.getId())
-                .userId(user.getId())
-                .email(user.getEmail())
-                .eventCreationTime(LocalDateTime.now())
-                .items(updatedOrder.getItems())
-                .amount(updatedOrder.getAmount())
-                .status(updatedOrder.getStatus())
-                .build();
+        // the chunk's updates and outbox rows commit together, a write conflict rolls the chunk back and retries it
+        for (int attempt = 0; attempt < TRANSITION_ATTEMPTS; attempt++) {
+            try {
+                Map<Integer, StatusTransitionResult> outcomes =
+                        transactionTemplate.execute(tx -> transitionChunk(transitions, positions, user));
+                outcomes.forEach((i, result) -> results[i] = result);
+                return;
+            } catch (TransientMongoDbException e) {
+                log.debug("Order Service :: Concurrent write in bulk status update, retrying chunk: {}", e.getMessage());
+            }
+        }
+        positions.forEach((orderId, i) -> results[i] = transitionResult(orderId.toHexString(),
+                StatusTransitionResult.Outcome.CONFLICT, null, "Order is being updated concurrently, try again"));
+    }
 
-        CompletableFuture<SendResult<String, Object>> orderEvent = kafkaTemplate.send("order_update_event", updatedEvent);
-        orderEvent.exceptionally(e -> {
-            log.error("Kafka send failed for order update: {}", e.getMessage());
-            return null;
+    private String invalidTransition(StatusTransition transition) {
+        if (transition == null) {
+            return "Transition must not be empty";
+        }
+        List<String> violations = new ArrayList<>();
+        for (ConstraintViolation<StatusTransition> violation : validator.validate(transition)) {
+            violations.add(violation.getMessage());
+        }
+        if (violations.isEmpty() && !ObjectId.isValid(transition.getOrderId())) {
+            violations.add("Not a valid order id");
+        }
+        return violations.isEmpty() ? null : String.join(" ", violations);
+    }
+
+    /*
+    the updates of a chunk go out as one unordered bulkWrite, each filtered on the status and sequence that were read.
+    a bulkWrite only reports how many updates matched, so the outcome per order comes from one read of the orders
+    afterwards: an order carrying the status and sequence its update set was updated, any other state is a conflict.
+    the read runs in the chunk's transaction, so it sees this chunk's writes and nothing committed since.
+     */
+    private Map<Integer, StatusTransitionResult> transitionChunk(List<StatusTransition> transitions,
+                                                                 Map<ObjectId, Integer> positions, User user) {
+        Map<Integer, StatusTransitionResult> results = new HashMap<>();
+        Map<ObjectId, Order> current = new HashMap<>();
+        mongoTemplate.find(new Query(Criteria.where("_id").in(positions.keySet())), Order.class)
+                .forEach(order -> current.put(order.getId(), order));
+
+        Map<ObjectId, OrderEventDTO> planned = new LinkedHashMap<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        LocalDateTime now = LocalDateTime.now();
+        positions.forEach((orderId, i) -> {
+            Order order = current.get(orderId);
+            if (order == null || !order.getUserId().equals(user.getId())) {
+                results.put(i, transitionResult(orderId.toHexString(), StatusTransitionResult.Outcome.NOT_FOUND, null, "Order not found"));
+                return;
+            }
+            Order.Status newStatus;
+            try {
+                newStatus = getStatus(new OrderUpdateStatus(transitions.get(i).getStatus()), order);
+            } catch (OrderNotCancellableException e) {
+                results.put(i, transitionResult(orderId.toHexString(), StatusTransitionResult.Outcome.REJECTED,
+                        order.getStatus(), e.getMessage()));
+                return;
+            }
+            Long sequence = order.getEventSequence();
+            // orders created before sequencing was introduced start counting from here
+            long nextSequence = sequence == null ? 1L : sequence + 1;
+            bulk.updateOne(
+                    new Query(Criteria.where("_id").is(orderId)
+                            .and("status").is(order.getStatus())
+                            .and("eventSequence").is(sequence)),
+                    new Update()
+                            .set("status", newStatus)
+                            .set(Order.statusTimesPath(newStatus), Order.toEpochMillis(now))
+                            .set("updateOn", now)
+                            .set("eventSequence", nextSequence)
+                            .inc("version", 1)
+            );
+            planned.put(orderId, OrderEventDTO.builder()
+                    .orderId(orderId)
+                    .eventCreationTime(now)
+                    .status(newStatus)
+                    .previousStatus(order.getStatus())
+                    .sequence(nextSequence)
+                    .build());
+        });
+        if (planned.isEmpty()) {
+            return results;
+        }
+        bulk.execute();
+
+        Query updated = new Query(Criteria.where("_id").in(planned.keySet()));
+        updated.fields().include("status").include("eventSequence");
+        Map<ObjectId, Order> after = new HashMap<>();
+        mongoTemplate.find(updated, Order.class).forEach(order -> after.put(order.getId(), order));
+
+        List<OrderEventDTO> events = new ArrayList<>(planned.size());
+        planned.forEach((orderId, event) -> {
+            int i = positions.get(orderId);
+            Order order = after.get(orderId);
+            if (order == null || order.getStatus() != event.getStatus()
+                    || !event.getSequence().equals(order.getEventSequence())) {
+                // removed or changed since it was read, the status reported is the one that was read
+                results.put(i, transitionResult(orderId.toHexString(), StatusTransitionResult.Outcome.CONFLICT,
+                        event.getPreviousStatus(), "Order was updated or removed concurrently"));
+                return;
+            }
+            results.put(i, transitionResult(orderId.toHexString(), StatusTransitionResult.Outcome.UPDATED, event.getStatus(), null));
+            events.add(event);
         });
-        log.info("Order Service :: Order update event sent for status: {}", newStatus);
+        orderEventPublisher.publishAll(KafkaTopicConfig.ORDER_UPDATE_EVENT, events);
+        return results;
+    }
 
-        return OrderMapper.orderResponseToUser(updatedOrder);
+    private static StatusTransitionResult transitionResult(String orderId, StatusTransitionResult.Outcome outcome,
+                                                           Order.Status status, String message) {
+        return StatusTransitionResult.builder()
+                .orderId(orderId)
+                .outcome(outcome)
+                .status(status)
+                .message(message)
+                .build();
     }
 
     private Order.Status getStatus(OrderUpdateStatus orderUpdateStatus, Order order) {
         Order.Status currentStatus = order.getStatus();
         Order.Status newStatus = orderUpdateStatus.getStatus();
 
+        if (OrderTransitions.isAllowed(currentStatus, newStatus)) {
+            return newStatus;
+        }
+
         // Once cancelled, no further updates are allowed
         if (currentStatus == Order.Status.CANCELLED) {
             throw new OrderNotCancellableException("Order is cancelled and cannot be updated further.");
@@ -186,12 +558,9 @@ public class OrderServiceImpl implements OrderService {
         }
 
         // Allow cancellation only for early stages
-        if (newStatus == Order.Status.CANCELLED && !isOrderCancellable(currentStatus)) {
-            throw new OrderNotCancellableException(
-                    "Cannot cancel order once it has reached " + currentStatus + " stage."
-            );
-        }
-        return newStatus;
+        throw new OrderNotCancellableException(
+                "Cannot cancel order once it has reached " + currentStatus + " stage."
+        );
     }
 
     @Override
@@ -208,10 +577,26 @@ public class OrderServiceImpl implements OrderService {
         return OrderMapper.orderResponseToUser(order);
     }
 
-    private boolean isOrderCancellable(Order.Status status) {
-        return status == Order.Status.PENDING
-                || status == Order.Status.CONFIRMED
-                || status == Order.Status.PROCESSING
-                || status == Order.Status.PACKED;
+    @Override
+    public String fetchOrderETag(ObjectId id, User user) {
+        Order version = orderRepository.findVersionById(id).orElseThrow(
+                () -> new OrderNotFoundException("Order not found with id: " + id)
+        );
+
+        if (!version.getUserId().equals(user.getId())) {
+            throw new OrderNotFoundException("Order not found with id: " + id);
+        }
+
+        return OrderMapper.orderETag(version.getId(), version.getEventSequence(), version.getUpdateOn());
+    }
+
+    @Override
+    public String fetchOrdersETag(int pageNo, int pageSize, User user) {
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, USER_ORDERS_SORT);
+        Page<Order> versions = orderRepository.findVersionsByUserId(user.getId(), pageable);
+        List<String> orderETags = versions
+                .map(version -> OrderMapper.orderETag(version.getId(), version.getEventSequence(), version.getUpdateOn()))
+                .getContent();
+        return OrderMapper.pageETag(pageNo, pageSize, versions.getTotalElements(), orderETags);
     }
 }
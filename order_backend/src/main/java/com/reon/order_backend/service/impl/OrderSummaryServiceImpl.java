@@ -0,0 +1,225 @@
+package com.reon.order_backend.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.OrderSummary;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.dto.summary.OrderSummaryResponse;
+import com.reon.order_backend.mapper.OrderSummaryMapper;
+import com.reon.order_backend.repository.OrderSummaryRepository;
+import com.reon.order_backend.service.OrderSummaryService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/*
+serves the per-user order summary in one lookup: a short lived in-memory tier in front of the order_summaries
+collection. the consumer applies every event as a single findAndModify of $inc / $push / filtered $set and refreshes
+the hot tier of this node, other nodes pick the change up when their entry expires.
+a summary that does not exist yet is built once from the user's orders and maintained by events from then on.
+the build already reflects events the consumer has not reached, so the summary keeps the last applied sequence of
+each order and an event is only applied while it is newer than that watermark.
+a cancelled order is deleted, so nothing but its watermark would be left of it. the watermark is kept while the
+cancel can still be redelivered (summary.watermark-retention) and dropped by the next event of the user after that,
+which bounds the document by the user's live orders plus the ones cancelled within the retention.
+ */
+@Service
+@Slf4j
+public class OrderSummaryServiceImpl implements OrderSummaryService {
+    private static final String STATUS_COUNTS = "statusCounts.";
+    private static final String APPLIED_SEQUENCES = "appliedSequences.";
+    private static final String CANCELLED_ON = "cancelledOn.";
+
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderSummaryMapper orderSummaryMapper;
+    private final MongoTemplate mongoTemplate;
+    private final Cache<ObjectId, OrderSummary> hotSummaries;
+    private final int recentOrders;
+    private final Duration watermarkRetention;
+
+    public OrderSummaryServiceImpl(OrderSummaryRepository orderSummaryRepository, OrderSummaryMapper orderSummaryMapper,
+                                   MongoTemplate mongoTemplate,
+                                   @Value("${summary.recent-orders}") int recentOrders,
+                                   @Value("${summary.cache.maximum-size}") long maximumSize,
+                                   @Value("${summary.cache.ttl}") Duration ttl,
+                                   @Value("${summary.watermark-retention}") Duration watermarkRetention) {
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.orderSummaryMapper = orderSummaryMapper;
+        this.mongoTemplate = mongoTemplate;
+        this.recentOrders = recentOrders;
+        this.watermarkRetention = watermarkRetention;
+        this.hotSummaries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public OrderSummaryResponse fetchSummary(ObjectId userId) {
+        log.info("Order Summary Service :: Fetching summary of user: {}", userId);
+        OrderSummary summary = hotSummaries.get(userId,
+                id -> orderSummaryRepository.findById(id).orElseGet(() -> rebuild(id)));
+        return orderSummaryMapper.summaryResponse(summary);
+    }
+
+    @Override
+    public void applyPlaced(OrderEventDTO event) {
+        OrderSummary.RecentOrder recentOrder = OrderSummary.RecentOrder.builder()
+                .orderId(event.getOrderId())
+                .status(event.getStatus())
+                .amountMinor(minorUnits(event))
+                .sequence(event.getSequence())
+                .createdOn(event.getEventCreationTime())
+                .build();
+        Update update = new Update()
+                .inc(STATUS_COUNTS + event.getStatus().name(), 1)
+                .inc("totalSpendMinor", minorUnits(event))
+                .set("updatedOn", LocalDateTime.now());
+        update.push("recentOrders")
+                .sort(Sort.by(Sort.Direction.DESC, "createdOn"))
+                .slice(recentOrders)
+                .each(recentOrder);
+        apply(event, update);
+    }
+
+    @Override
+    public void applyStatus(OrderEventDTO event) {
+        boolean cancelled = event.getStatus() == Order.Status.CANCELLED;
+        Update update = new Update().set("updatedOn", LocalDateTime.now());
+        if (event.getPreviousStatus() != null) {
+            update.inc(STATUS_COUNTS + event.getPreviousStatus().name(), -1);
+            if (!cancelled) {
+                update.inc(STATUS_COUNTS + event.getStatus().name(), 1);
+            }
+        } else {
+            // published before events carried the previous status, the counts cannot be moved
+            log.debug("Order Summary Service :: No previous status on event {}, counts left unchanged", event.eventKey());
+        }
+        if (cancelled) {
+            // the order is deleted on cancel, take it off the summary the way a rebuild would not see it
+            if (event.getAmount() != null) {
+                update.inc("totalSpendMinor", -minorUnits(event));
+            }
+            update.pull("recentOrders", new Document("orderId", event.getOrderId()));
+            if (event.getSequence() != null) {
+                update.set(CANCELLED_ON + event.getOrderId().toHexString(), LocalDateTime.now());
+            }
+            apply(event, update);
+            return;
+        }
+        // the entry in the recent orders, unless a newer status was applied to it already
+        Criteria entry = Criteria.where("o.orderId").is(event.getOrderId());
+        if (event.getSequence() != null) {
+            entry.and("o.sequence").lt(event.getSequence());
+        }
+        update.set("recentOrders.$[o].status", event.getStatus())
+                .set("recentOrders.$[o].sequence", event.getSequence())
+                .filterArray(entry);
+        apply(event, update);
+    }
+
+    private void apply(OrderEventDTO event, Update update) {
+        ObjectId userId = event.getUserId();
+        Query query = new Query(Criteria.where("_id").is(userId));
+        if (event.getSequence() != null) {
+            // matches a missing watermark as well, the order was not reflected yet
+            String watermark = APPLIED_SEQUENCES + event.getOrderId().toHexString();
+            query.addCriteria(Criteria.where(watermark).not().gte(event.getSequence()));
+            update.set(watermark, event.getSequence());
+        }
+        OrderSummary summary = modify(query, update);
+        if (summary == null) {
+            if (mongoTemplate.exists(new Query(Criteria.where("_id").is(userId)), OrderSummary.class)) {
+                log.debug("Order Summary Service :: Event {} already reflected in summary of user: {}", event.eventKey(), userId);
+                return;
+            }
+            // first event of the user since the read model exists, build it and apply the event unless it holds it
+            rebuild(userId);
+            summary = modify(query, update);
+            if (summary == null) {
+                summary = mongoTemplate.findById(userId, OrderSummary.class);
+            }
+        }
+        hotSummaries.put(userId, dropExpiredWatermarks(summary));
+    }
+
+    // watermarks of orders cancelled longer ago than the retention, their events are no longer redelivered
+    private OrderSummary dropExpiredWatermarks(OrderSummary summary) {
+        if (summary.getCancelledOn() == null) {
+            return summary;
+        }
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(watermarkRetention);
+        Update update = new Update();
+        summary.getCancelledOn().forEach((orderId, cancelledOn) -> {
+            if (cancelledOn.isBefore(expiredBefore)) {
+                update.unset(APPLIED_SEQUENCES + orderId).unset(CANCELLED_ON + orderId);
+            }
+        });
+        if (update.getUpdateObject().isEmpty()) {
+            return summary;
+        }
+        OrderSummary pruned = modify(new Query(Criteria.where("_id").is(summary.getUserId())), update);
+        return pruned != null ? pruned : summary;
+    }
+
+    private OrderSummary modify(Query query, Update update) {
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), OrderSummary.class);
+    }
+
+    /*
+    builds the summary from the orders collection through the userId index, newest first, and seeds the watermark
+    of every order with its current sequence. cancelled orders are gone from the collection and not counted.
+    two nodes may race to build the same summary, the first insert wins and the other one reads it.
+     */
+    private OrderSummary rebuild(ObjectId userId) {
+        log.info("Order Summary Service :: Building summary of user: {}", userId);
+        OrderSummary summary = OrderSummary.builder()
+                .userId(userId)
+                .updatedOn(LocalDateTime.now())
+                .build();
+        Query query = new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "createdOn", "_id"));
+        try (Stream<Order> orders = mongoTemplate.stream(query, Order.class)) {
+            orders.forEach(order -> {
+                summary.getAppliedSequences().put(order.getId().toHexString(),
+                        order.getEventSequence() != null ? order.getEventSequence() : 0L);
+                summary.getStatusCounts().merge(order.getStatus().name(), 1L, Long::sum);
+                if (order.getAmountMinor() != null) {
+                    summary.setTotalSpendMinor(summary.getTotalSpendMinor() + order.getAmountMinor());
+                }
+                if (summary.getRecentOrders().size() < recentOrders) {
+                    summary.getRecentOrders().add(OrderSummary.RecentOrder.builder()
+                            .orderId(order.getId())
+                            .status(order.getStatus())
+                            .amountMinor(order.getAmountMinor())
+                            .sequence(order.getEventSequence())
+                            .createdOn(order.getCreatedOn())
+                            .build());
+                }
+            });
+        }
+        try {
+            return mongoTemplate.insert(summary);
+        } catch (DuplicateKeyException e) {
+            return mongoTemplate.findById(userId, OrderSummary.class);
+        }
+    }
+
+    private static long minorUnits(OrderEventDTO event) {
+        return event.getAmount() != null ? Order.toMinorUnits(event.getAmount()) : 0L;
+    }
+}
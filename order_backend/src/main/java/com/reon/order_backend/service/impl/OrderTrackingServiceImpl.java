@@ -0,0 +1,110 @@
+package com.reon.order_backend.service.impl;
+
+import com.reon.order_backend.document.User;
+import com.reon.order_backend.dto.order.OrderResponse;
+import com.reon.order_backend.dto.tracking.OrderTrackingEvent;
+import com.reon.order_backend.mapper.OrderMapper;
+import com.reon.order_backend.service.OrderService;
+import com.reon.order_backend.service.OrderTrackingService;
+import com.reon.order_backend.tracking.OrderTrackingRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Slf4j
+public class OrderTrackingServiceImpl implements OrderTrackingService {
+    private final OrderService orderService;
+    private final OrderTrackingRegistry orderTrackingRegistry;
+    private final Duration maxWait;
+    // completes long-polls off the kafka listener thread, the changed order is read from mongo
+    private final ExecutorService pollExecutor;
+
+    public OrderTrackingServiceImpl(OrderService orderService, OrderTrackingRegistry orderTrackingRegistry,
+                                    @Value("${tracking.long-poll.max-wait}") Duration maxWait,
+                                    @Value("${tracking.long-poll.workers}") int workers) {
+        this.orderService = orderService;
+        this.orderTrackingRegistry = orderTrackingRegistry;
+        this.maxWait = maxWait;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pollExecutor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "order-long-poll-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public SseEmitter trackOrder(ObjectId orderId, User user, String lastEventId) {
+        log.info("Order Tracking Service :: Tracking order {} (last event: {})", orderId, lastEventId);
+        // also checks that the order belongs to the user
+        OrderResponse order = orderService.fetchOrderViaId(orderId, user);
+        OrderTrackingEvent current = OrderTrackingEvent.builder()
+                .orderId(order.getId())
+                .status(order.getStatus())
+                .sequence(order.getEventSequence())
+                .updatedAt(order.getUpdateOn())
+                .build();
+        return orderTrackingRegistry.subscribeOrder(current, lastEventId);
+    }
+
+    @Override
+    public SseEmitter trackOrders(User user, String lastEventId) {
+        log.info("Order Tracking Service :: Tracking orders of user {} (last event: {})", user.getId(), lastEventId);
+        return orderTrackingRegistry.subscribeUser(user.getId(), lastEventId);
+    }
+
+    /*
+    answers right away when the order no longer matches the client's etag, otherwise holds the request until
+    the order changes or the timeout passes (304). the watcher is registered before the version is checked,
+    so a change landing in between is not missed.
+     */
+    @Override
+    public DeferredResult<ResponseEntity<OrderResponse>> pollOrder(ObjectId orderId, User user,
+                                                                   String ifNoneMatch, Duration timeout) {
+        Duration wait = timeout.compareTo(maxWait) > 0 ? maxWait : timeout;
+        DeferredResult<ResponseEntity<OrderResponse>> result = new DeferredResult<>(wait.toMillis(),
+                () -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).<OrderResponse>build());
+        Runnable unwatch = orderTrackingRegistry.watchOrder(orderId,
+                () -> pollExecutor.execute(() -> complete(result, orderId, user)));
+        result.onCompletion(unwatch);
+        try {
+            String current = orderService.fetchOrderETag(orderId, user);
+            if (!OrderMapper.eTagMatches(ifNoneMatch, current)) {
+                complete(result, orderId, user);
+            }
+        } catch (RuntimeException e) {
+            unwatch.run();
+            throw e;
+        }
+        return result;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pollExecutor.shutdownNow();
+    }
+
+    private void complete(DeferredResult<ResponseEntity<OrderResponse>> result, ObjectId orderId, User user) {
+        if (result.isSetOrExpired()) {
+            return;
+        }
+        try {
+            OrderResponse order = orderService.fetchOrderViaId(orderId, user);
+            result.setResult(ResponseEntity.ok().eTag(OrderMapper.orderETag(order)).body(order));
+        } catch (RuntimeException e) {
+            result.setErrorResult(e);
+        }
+    }
+}
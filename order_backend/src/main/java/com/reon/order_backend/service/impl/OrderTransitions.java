@@ -0,0 +1,50 @@
+package com.reon.order_backend.service.impl;
+
+import com.reon.order_backend.document.Order;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+/*
+the order status rules, precomputed once: for every target status, the current statuses it may be reached from.
+  - a cancelled order is never updated again
+  - status never moves backward
+  - an order can only be cancelled up to PACKED
+updates filter on these sets, so the rule is checked by mongo in the same operation that applies it.
+ */
+final class OrderTransitions {
+    static final EnumSet<Order.Status> CANCELLABLE = EnumSet.of(
+            Order.Status.PENDING,
+            Order.Status.CONFIRMED,
+            Order.Status.PROCESSING,
+            Order.Status.PACKED
+    );
+
+    private static final Map<Order.Status, EnumSet<Order.Status>> ALLOWED_FROM = new EnumMap<>(Order.Status.class);
+
+    static {
+        for (Order.Status target : Order.Status.values()) {
+            EnumSet<Order.Status> from = EnumSet.noneOf(Order.Status.class);
+            for (Order.Status current : Order.Status.values()) {
+                if (current != Order.Status.CANCELLED
+                        && target.ordinal() >= current.ordinal()
+                        && (target != Order.Status.CANCELLED || CANCELLABLE.contains(current))) {
+                    from.add(current);
+                }
+            }
+            ALLOWED_FROM.put(target, from);
+        }
+    }
+
+    private OrderTransitions() {
+    }
+
+    static EnumSet<Order.Status> allowedFrom(Order.Status target) {
+        return ALLOWED_FROM.get(target);
+    }
+
+    static boolean isAllowed(Order.Status current, Order.Status target) {
+        return ALLOWED_FROM.get(target).contains(current);
+    }
+}
@@ -0,0 +1,314 @@
+package com.reon.order_backend.tracking;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.dto.tracking.OrderTrackingEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+connected tracking clients of this node, keyed by order and by user. every node sees every status event
+(see OrderTrackingConsumer) and fans it out to its own clients. the last events of each order and user are
+kept in small ring buffers so a client reconnecting with Last-Event-ID gets what it missed.
+long-poll requests register one-shot watchers that fire on the next change of their order.
+delivery is at-least-once, a resumed client may see an event twice and should ignore ids it already has.
+the kafka listener thread only queues events, they are written to the clients by a small sender pool
+(see TrackingClient), so one slow client does not hold up the partition for everybody else.
+ */
+@Component
+@Slf4j
+public class OrderTrackingRegistry {
+    public static final String STATUS_EVENT = "status";
+
+    private final Map<ObjectId, Set<TrackingClient>> orderSubscribers = new ConcurrentHashMap<>();
+    private final Map<ObjectId, Set<TrackingClient>> userSubscribers = new ConcurrentHashMap<>();
+    private final Map<ObjectId, Set<Runnable>> orderWatchers = new ConcurrentHashMap<>();
+    private final Cache<ObjectId, EventRing> orderHistory;
+    private final Cache<ObjectId, EventRing> userHistory;
+    private final long emitterTimeout;
+    private final int historySize;
+    private final int clientBuffer;
+    private final ExecutorService sender;
+
+    public OrderTrackingRegistry(@Value("${tracking.emitter-timeout}") Duration emitterTimeout,
+                                 @Value("${tracking.history.size}") int historySize,
+                                 @Value("${tracking.history.maximum-size}") long maximumSize,
+                                 @Value("${tracking.history.ttl}") Duration ttl,
+                                 @Value("${tracking.sender.threads}") int senderThreads,
+                                 @Value("${tracking.sender.client-buffer}") int clientBuffer) {
+        this.emitterTimeout = emitterTimeout.toMillis();
+        this.historySize = historySize;
+        this.clientBuffer = clientBuffer;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "tracking-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.orderHistory = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterAccess(ttl).build();
+        this.userHistory = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterAccess(ttl).build();
+    }
+
+    /*
+    streams the status changes of one order. current is the order as stored right now: it is sent first on a
+    fresh connection, and instead of the missed events when the ring buffer cannot close the gap.
+     */
+    public SseEmitter subscribeOrder(OrderTrackingEvent current, String lastEventId) {
+        TrackingClient client = register(orderSubscribers, current.getOrderId());
+        Long lastSequence = sequenceOf(lastEventId);
+        if (lastSequence == null || current.getSequence() == null) {
+            client.send(current);
+            return client.emitter;
+        }
+        if (current.getSequence() <= lastSequence) {
+            return client.emitter;
+        }
+        EventRing ring = orderHistory.getIfPresent(current.getOrderId());
+        List<OrderTrackingEvent> missed = ring != null ? ring.afterSequence(lastSequence) : List.of();
+        if (!missed.isEmpty() && missed.get(0).getSequence() == lastSequence + 1) {
+            missed.forEach(client::send);
+        } else {
+            client.send(current);
+        }
+        return client.emitter;
+    }
+
+    // streams the status changes of all orders of a user, replaying what is buffered after lastEventId
+    public SseEmitter subscribeUser(ObjectId userId, String lastEventId) {
+        TrackingClient client = register(userSubscribers, userId);
+        if (lastEventId != null) {
+            EventRing ring = userHistory.getIfPresent(userId);
+            if (ring != null) {
+                ring.afterEventId(lastEventId).forEach(client::send);
+            }
+        }
+        return client.emitter;
+    }
+
+    /*
+    runs onChange once on the next status change of the order (on the kafka listener thread, so it must not block).
+    returns a handle that unregisters the watcher, e.g. when the waiting request timed out.
+     */
+    public Runnable watchOrder(ObjectId orderId, Runnable onChange) {
+        orderWatchers.computeIfAbsent(orderId, k -> ConcurrentHashMap.newKeySet()).add(onChange);
+        return () -> orderWatchers.computeIfPresent(orderId, (k, watchers) -> {
+            watchers.remove(onChange);
+            return watchers.isEmpty() ? null : watchers;
+        });
+    }
+
+    public void publish(OrderEventDTO orderEvent) {
+        OrderTrackingEvent event = OrderTrackingEvent.builder()
+                .orderId(orderEvent.getOrderId())
+                .status(orderEvent.getStatus())
+                .sequence(orderEvent.getSequence())
+                .updatedAt(orderEvent.getEventCreationTime())
+                .build();
+        if (!orderHistory.get(event.getOrderId(), id -> new EventRing(historySize)).append(event)) {
+            log.debug("Order Tracking :: Ignoring stale event {}", event.eventId());
+            return;
+        }
+        fanOut(orderSubscribers.get(event.getOrderId()), event);
+        if (orderEvent.getUserId() != null) {
+            userHistory.get(orderEvent.getUserId(), id -> new EventRing(historySize)).append(event);
+            fanOut(userSubscribers.get(orderEvent.getUserId()), event);
+        }
+        Set<Runnable> watchers = orderWatchers.remove(event.getOrderId());
+        if (watchers != null) {
+            watchers.forEach(Runnable::run);
+        }
+    }
+
+    // keeps idle connections alive through proxies and detects clients that went away
+    @Scheduled(fixedDelayString = "${tracking.heartbeat-interval}")
+    public void heartbeat() {
+        heartbeat(orderSubscribers);
+        heartbeat(userSubscribers);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private void heartbeat(Map<ObjectId, Set<TrackingClient>> subscribers) {
+        subscribers.values().forEach(clients -> clients.forEach(
+                client -> client.enqueue(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    private TrackingClient register(Map<ObjectId, Set<TrackingClient>> subscribers, ObjectId key) {
+        TrackingClient client = new TrackingClient(new SseEmitter(emitterTimeout));
+        subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(client);
+        Runnable remove = () -> {
+            client.closed = true;
+            subscribers.computeIfPresent(key, (k, clients) -> {
+                clients.remove(client);
+                return clients.isEmpty() ? null : clients;
+            });
+        };
+        client.emitter.onCompletion(remove);
+        client.emitter.onTimeout(remove);
+        client.emitter.onError(error -> remove.run());
+        return client;
+    }
+
+    private void fanOut(Set<TrackingClient> clients, OrderTrackingEvent event) {
+        if (clients != null) {
+            clients.forEach(client -> client.send(event));
+        }
+    }
+
+    // event ids are orderId:sequence
+    private static Long sequenceOf(String eventId) {
+        if (eventId == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(eventId.indexOf(':') + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /*
+    one connected client. events are queued per client and written by the sender pool, at most one sender
+    works on a client at a time so its events stay in order. a client whose buffer overflows is too slow to
+    keep up and is disconnected, it reconnects with Last-Event-ID and catches up from the ring buffers.
+     */
+    private final class TrackingClient {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> pending;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private TrackingClient(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.pending = new ArrayBlockingQueue<>(clientBuffer);
+        }
+
+        private void send(OrderTrackingEvent event) {
+            enqueue(SseEmitter.event()
+                    .id(event.eventId())
+                    .name(STATUS_EVENT)
+                    .data(event));
+        }
+
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!pending.offer(event)) {
+                log.debug("Order Tracking :: Dropping client that fell {} events behind", clientBuffer);
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // shutting down
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = pending.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        log.debug("Order Tracking :: Dropping disconnected client: {}", e.getMessage());
+                        close();
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            // an event queued after the last poll but before the flag was cleared
+            if (!closed && !pending.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void close() {
+            closed = true;
+            pending.clear();
+            emitter.complete();
+        }
+    }
+
+    private static final class EventRing {
+        private final ArrayDeque<OrderTrackingEvent> events;
+        private final int capacity;
+
+        private EventRing(int capacity) {
+            this.events = new ArrayDeque<>(capacity);
+            this.capacity = capacity;
+        }
+
+        // returns false for an event older than (or equal to) the newest one of the same order
+        private synchronized boolean append(OrderTrackingEvent event) {
+            OrderTrackingEvent newest = events.peekLast();
+            if (newest != null && newest.getOrderId().equals(event.getOrderId())
+                    && newest.getSequence() != null && event.getSequence() != null
+                    && event.getSequence() <= newest.getSequence()) {
+                return false;
+            }
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+            return true;
+        }
+
+        private synchronized List<OrderTrackingEvent> afterSequence(long sequence) {
+            List<OrderTrackingEvent> after = new ArrayList<>();
+            for (OrderTrackingEvent event : events) {
+                if (event.getSequence() != null && event.getSequence() > sequence) {
+                    after.add(event);
+                }
+            }
+            return after;
+        }
+
+        // everything after the given event, or the whole buffer when it was already evicted
+        private synchronized List<OrderTrackingEvent> afterEventId(String eventId) {
+            List<OrderTrackingEvent> after = new ArrayList<>();
+            for (OrderTrackingEvent event : events) {
+                after.add(event);
+                if (event.eventId().equals(eventId)) {
+                    after.clear();
+                }
+            }
+            return after;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.reon.order_backend.email;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.email.template.EmailTemplateRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderEmailComposerTest {
+    private final OrderEmailComposer composer = new OrderEmailComposer(registry());
+
+    @Test
+    void rendersTheSummaryFromTheEntryTemplates() {
+        ObjectId first = new ObjectId();
+        ObjectId second = new ObjectId();
+        List<List<OrderEventDTO>> histories = List.of(
+                List.of(event(first, Order.Status.CONFIRMED), event(first, Order.Status.PROCESSING)),
+                List.of(event(second, Order.Status.SHIPPED)));
+
+        EmailMessage email = composer.orderStatusSummary("jane@example.com", histories);
+
+        assertThat(email.getTo()).isEqualTo("jane@example.com");
+        assertThat(email.getBody())
+                .contains("OrderId: " + first + "\nStatus: PROCESSING\nHistory: CONFIRMED -> PROCESSING\n\n")
+                .contains("OrderId: " + second + "\nStatus: SHIPPED\nHistory: SHIPPED\n");
+        assertThat(email.getHtml())
+                .contains("<li>OrderId: " + first + "<br>Status: <strong>PROCESSING</strong><br>History: CONFIRMED -&gt; PROCESSING</li>")
+                .contains("<strong>SHIPPED</strong>");
+    }
+
+    private static OrderEventDTO event(ObjectId orderId, Order.Status status) {
+        return OrderEventDTO.builder().orderId(orderId).status(status).build();
+    }
+
+    private static EmailTemplateRegistry registry() {
+        EmailTemplateRegistry registry = new EmailTemplateRegistry(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "location", "classpath:templates/email/");
+        return registry;
+    }
+}
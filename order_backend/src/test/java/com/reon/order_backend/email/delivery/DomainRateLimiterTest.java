@@ -0,0 +1,61 @@
+package com.reon.order_backend.email.delivery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DomainRateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long SLACK = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final DomainRateLimiter limiter = new DomainRateLimiter(1, 1, "slow.com=0.5, broken");
+
+    @Test
+    void spacesReservationsOfADomainByItsRate() {
+        assertThat(limiter.reserve("example.com")).isCloseTo(0, within(SLACK));
+        assertThat(limiter.reserve("example.com")).isCloseTo(SECOND, within(SLACK));
+        assertThat(limiter.reserve("example.com")).isCloseTo(2 * SECOND, within(SLACK));
+    }
+
+    @Test
+    void appliesTheDomainOverride() {
+        limiter.reserve("slow.com");
+        assertThat(limiter.reserve("slow.com")).isCloseTo(2 * SECOND, within(SLACK));
+    }
+
+    @Test
+    void keepsASeparateBucketPerDomain() {
+        limiter.reserve("example.com");
+        limiter.reserve("example.com");
+
+        assertThat(limiter.reserve("other.com")).isCloseTo(0, within(SLACK));
+    }
+
+    @Test
+    void matchesDomainsCaseInsensitively() {
+        limiter.reserve("Example.COM");
+        assertThat(limiter.reserve("example.com")).isCloseTo(SECOND, within(SLACK));
+    }
+
+    @Test
+    void letsAnIdleDomainSpendItsBurst() throws InterruptedException {
+        DomainRateLimiter bursty = new DomainRateLimiter(20, 3, "");
+        bursty.reserve("example.com");
+        Thread.sleep(200);
+
+        assertThat(bursty.reserve("example.com")).isZero();
+        assertThat(bursty.reserve("example.com")).isZero();
+        assertThat(bursty.reserve("example.com")).isZero();
+        assertThat(bursty.reserve("example.com")).isPositive();
+    }
+
+    @Test
+    void takesTheDomainAfterTheLastAt() {
+        assertThat(DomainRateLimiter.domainOf("jane@example.com")).isEqualTo("example.com");
+        assertThat(DomainRateLimiter.domainOf("\"a@b\"@example.com")).isEqualTo("example.com");
+        assertThat(DomainRateLimiter.domainOf("localhost")).isEqualTo("localhost");
+    }
+}
@@ -0,0 +1,92 @@
+package com.reon.order_backend.email.delivery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimerWheelTest {
+    // one nanosecond per tick and 4 buckets, level 0 holds 4 ticks, level 1 16, level 2 64
+    private final HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1, 4, 3, 0);
+
+    @Test
+    void expiresEntryOnItsDeadlineTick() {
+        wheel.schedule("a", 3);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(2, expired::add);
+        assertThat(expired).isEmpty();
+
+        wheel.advance(3, expired::add);
+        assertThat(expired).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cascadesEntriesFromUpperLevelsDownToTheirTick() {
+        wheel.schedule("level1", 9);
+        wheel.schedule("level2", 20);
+        wheel.schedule("last", 63);
+
+        Map<String, Long> expiredAt = new HashMap<>();
+        for (long now = 1; now <= 63; now++) {
+            long tick = now;
+            wheel.advance(now, item -> expiredAt.put(item, tick));
+        }
+
+        assertThat(expiredAt).containsEntry("level1", 9L)
+                .containsEntry("level2", 20L)
+                .containsEntry("last", 63L);
+    }
+
+    @Test
+    void expiresEveryDeadlineAfterAJumpAcrossLevels() {
+        for (long deadline = 1; deadline < 64; deadline++) {
+            wheel.schedule("d" + deadline, deadline);
+        }
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(40, expired::add);
+        assertThat(expired).hasSize(40).startsWith("d1", "d2", "d3").endsWith("d40");
+
+        wheel.advance(63, expired::add);
+        assertThat(expired).hasSize(63).endsWith("d63");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void rejectsDeadlinesBeyondTheHorizon() {
+        assertThat(wheel.horizonNanos()).isEqualTo(64);
+        assertThat(wheel.schedule("too late", 64)).isFalse();
+        assertThat(wheel.schedule("in time", 63)).isTrue();
+    }
+
+    @Test
+    void schedulesPastDeadlinesOnTheNextTick() {
+        wheel.advance(10, item -> { });
+        wheel.schedule("late", 5);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(11, expired::add);
+        assertThat(expired).containsExactly("late");
+    }
+
+    @Test
+    void drainHandsOutPendingItemsWithTheirDeadlines() {
+        wheel.schedule("near", 2);
+        wheel.schedule("far", 30);
+
+        Map<String, Long> pending = new HashMap<>();
+        wheel.drain(pending::put);
+
+        assertThat(pending).containsEntry("near", 2L).containsEntry("far", 30L);
+        assertThat(wheel.size()).isZero();
+        List<String> expired = new ArrayList<>();
+        wheel.advance(63, expired::add);
+        assertThat(expired).isEmpty();
+    }
+}
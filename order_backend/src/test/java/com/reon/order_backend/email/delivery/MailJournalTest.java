@@ -0,0 +1,27 @@
+package com.reon.order_backend.email.delivery;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class MailJournalTest {
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+    @Test
+    void acceptsALeaseThatStaysAheadOfPersistAfterBetweenRenewals() {
+        assertThatCode(() -> new MailJournal(mongoTemplate, Duration.ofMinutes(10), 120_000, Duration.ofMinutes(5)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void refusesALeaseThatFallsBehindPersistAfterBeforeItIsRenewed() {
+        assertThatThrownBy(() -> new MailJournal(mongoTemplate, Duration.ofMinutes(6), 120_000, Duration.ofMinutes(5)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("persist-after");
+    }
+}
@@ -0,0 +1,75 @@
+package com.reon.order_backend.email.template;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailTemplateRegistryTest {
+    @TempDir
+    Path directory;
+
+    private EmailTemplateRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new EmailTemplateRegistry(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "location", directory.toUri().toString());
+    }
+
+    @Test
+    void compilesTemplatesFromTheLocation() throws IOException {
+        Files.writeString(directory.resolve("greeting.txt"), "Hi {{name}}");
+
+        assertThat(registry.find("greeting", EmailTemplate.Variant.TEXT))
+                .hasValueSatisfying(template -> assertThat(template.render(name -> "Jane")).isEqualTo("Hi Jane"));
+    }
+
+    @Test
+    void reportsMissingVariantsAsEmpty() throws IOException {
+        Files.writeString(directory.resolve("greeting.txt"), "Hi");
+
+        assertThat(registry.find("greeting", EmailTemplate.Variant.HTML)).isEmpty();
+    }
+
+    @Test
+    void reloadsChangedTemplatesOnRefresh() throws IOException {
+        Path file = directory.resolve("greeting.txt");
+        Files.writeString(file, "Hi {{name}}");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000));
+        registry.find("greeting", EmailTemplate.Variant.TEXT);
+
+        Files.writeString(file, "Hello {{name}}");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000));
+        registry.refresh();
+
+        assertThat(registry.find("greeting", EmailTemplate.Variant.TEXT))
+                .hasValueSatisfying(template -> assertThat(template.render(name -> "Jane")).isEqualTo("Hello Jane"));
+    }
+
+    @Test
+    void picksUpTemplatesAddedAfterTheFirstLookup() throws IOException {
+        registry.find("greeting", EmailTemplate.Variant.HTML);
+
+        Files.writeString(directory.resolve("greeting.html"), "<p>{{name}}</p>");
+        registry.refresh();
+
+        assertThat(registry.find("greeting", EmailTemplate.Variant.HTML)).isPresent();
+    }
+
+    @Test
+    void failsStartupWithoutTheBaseTemplates() {
+        assertThatThrownBy(registry::verifyBaseTemplates)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("order-placed.txt");
+    }
+}
@@ -0,0 +1,58 @@
+package com.reon.order_backend.email.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailTemplateTest {
+
+    @Test
+    void fillsPlaceholdersBetweenLiterals() {
+        EmailTemplate template = EmailTemplate.compile("Hi {{ name }}, order {{orderId}} is {{status}}.", EmailTemplate.Variant.TEXT);
+
+        String rendered = template.render(Map.of("name", "Jane", "orderId", 42, "status", "SHIPPED")::get);
+
+        assertThat(rendered).isEqualTo("Hi Jane, order 42 is SHIPPED.");
+    }
+
+    @Test
+    void rendersMissingValuesAsEmpty() {
+        EmailTemplate template = EmailTemplate.compile("[{{missing}}]", EmailTemplate.Variant.TEXT);
+
+        assertThat(template.render(name -> null)).isEqualTo("[]");
+    }
+
+    @Test
+    void escapesHtmlValuesUnlessTripleBraced() {
+        EmailTemplate template = EmailTemplate.compile("<p>{{note}}</p>{{{rows}}}", EmailTemplate.Variant.HTML);
+
+        String rendered = template.render(Map.of("note", "<b>&</b>", "rows", "<tr></tr>")::get);
+
+        assertThat(rendered).isEqualTo("<p>&lt;b&gt;&amp;&lt;/b&gt;</p><tr></tr>");
+    }
+
+    @Test
+    void leavesTextValuesUnescaped() {
+        EmailTemplate template = EmailTemplate.compile("{{note}}", EmailTemplate.Variant.TEXT);
+
+        assertThat(template.render(name -> "a < b")).isEqualTo("a < b");
+    }
+
+    @Test
+    void doesNotLeakTheReusedBufferBetweenRenders() {
+        EmailTemplate template = EmailTemplate.compile("{{value}}", EmailTemplate.Variant.TEXT);
+
+        assertThat(template.render(name -> "a much longer first value")).isEqualTo("a much longer first value");
+        assertThat(template.render(name -> "short")).isEqualTo("short");
+    }
+
+    @Test
+    void rejectsUnclosedPlaceholders() {
+        assertThatThrownBy(() -> EmailTemplate.compile("Hi {{name", EmailTemplate.Variant.TEXT))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("offset 3");
+    }
+}
@@ -0,0 +1,104 @@
+package com.reon.order_backend.kafka.codec;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import org.apache.kafka.common.errors.SerializationException;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderEventCodecTest {
+
+    @Test
+    void roundTripsEveryField() {
+        OrderEventDTO event = OrderEventDTO.builder()
+                .orderId(new ObjectId())
+                .userId(new ObjectId())
+                .email("jane@example.com")
+                .eventCreationTime(LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_456_789))
+                .items(List.of("book", "stift ✏️"))
+                .amount(19.99)
+                .status(Order.Status.CANCELLED)
+                .sequence(300L)
+                .previousStatus(Order.Status.CONFIRMED)
+                .build();
+
+        byte[] encoded = OrderEventCodec.encode(event);
+
+        assertThat(encoded[0]).isEqualTo(OrderEventCodec.MAGIC);
+        assertThat(encoded[1]).isEqualTo(OrderEventCodec.V2);
+        assertThat(OrderEventCodec.decode(encoded)).isEqualTo(event);
+    }
+
+    @Test
+    void keepsAbsentFieldsNull() {
+        OrderEventDTO event = OrderEventDTO.builder()
+                .orderId(new ObjectId())
+                .status(Order.Status.SHIPPED)
+                .build();
+
+        assertThat(OrderEventCodec.decode(OrderEventCodec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void roundTripsNullAndEmptyItems() {
+        OrderEventDTO event = OrderEventDTO.builder()
+                .orderId(new ObjectId())
+                .items(Arrays.asList("", null))
+                .build();
+
+        assertThat(OrderEventCodec.decode(OrderEventCodec.encode(event)).getItems()).containsExactly("", null);
+    }
+
+    @Test
+    void decodesV1Events() {
+        // v1 is v2 without previousStatus, so a v2 encoding without it reads as the v1 layout
+        OrderEventDTO event = OrderEventDTO.builder()
+                .orderId(new ObjectId())
+                .userId(new ObjectId())
+                .email("jane@example.com")
+                .amount(5.0)
+                .status(Order.Status.PENDING)
+                .sequence(0L)
+                .build();
+        byte[] encoded = OrderEventCodec.encode(event);
+        encoded[1] = OrderEventCodec.V1;
+
+        assertThat(OrderEventCodec.decode(encoded)).isEqualTo(event);
+    }
+
+    @Test
+    void rejectsUnknownSchemaVersions() {
+        byte[] encoded = OrderEventCodec.encode(OrderEventDTO.builder().orderId(new ObjectId()).build());
+        encoded[1] = 9;
+
+        assertThatThrownBy(() -> OrderEventCodec.decode(encoded))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("schema version: 9");
+    }
+
+    @Test
+    void reportsTruncatedEventsAsCorrupt() {
+        byte[] encoded = OrderEventCodec.encode(OrderEventDTO.builder().orderId(new ObjectId()).email("jane@example.com").build());
+
+        assertThatThrownBy(() -> OrderEventCodec.decode(Arrays.copyOf(encoded, encoded.length - 4)))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("Corrupt");
+    }
+
+    @Test
+    void tellsJsonApartByTheFirstByte() {
+        byte[] json = "{\"status\":\"PENDING\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(OrderEventCodec.isBinary(json)).isFalse();
+        assertThat(OrderEventCodec.isBinary(OrderEventCodec.encode(new OrderEventDTO()))).isTrue();
+        assertThatThrownBy(() -> OrderEventCodec.decode(json)).isInstanceOf(SerializationException.class);
+    }
+}
@@ -0,0 +1,56 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.reon.order_backend.analytics.OrderRollupBuffer;
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderAnalyticsConsumerTest {
+    private final OrderRollupBuffer orderRollupBuffer = mock(OrderRollupBuffer.class);
+    private final EventDeduplicator eventDeduplicator = mock(EventDeduplicator.class);
+    private final OrderAnalyticsConsumer consumer = new OrderAnalyticsConsumer(orderRollupBuffer, eventDeduplicator);
+    private final OrderEventDTO event = OrderEventDTO.builder()
+            .orderId(new ObjectId())
+            .userId(new ObjectId())
+            .status(Order.Status.SHIPPED)
+            .sequence(2L)
+            .build();
+
+    @Test
+    void countsAnEventOnce() {
+        when(eventDeduplicator.tryAcquire("analytics", event)).thenReturn(true, false);
+
+        consumer.orderStatusAnalyticsConsumer(event);
+        consumer.orderStatusAnalyticsConsumer(event);
+
+        verify(orderRollupBuffer).recordStatus(event);
+    }
+
+    @Test
+    void skipsADuplicatePlacedEvent() {
+        when(eventDeduplicator.tryAcquire("analytics", event)).thenReturn(false);
+
+        consumer.orderPlacedAnalyticsConsumer(event);
+
+        verify(orderRollupBuffer, never()).recordPlaced(any());
+    }
+
+    @Test
+    void releasesTheEventWhenItCouldNotBeRecorded() {
+        when(eventDeduplicator.tryAcquire("analytics", event)).thenReturn(true);
+        doThrow(new IllegalStateException("boom")).when(orderRollupBuffer).recordPlaced(event);
+
+        assertThatThrownBy(() -> consumer.orderPlacedAnalyticsConsumer(event)).isInstanceOf(IllegalStateException.class);
+
+        verify(eventDeduplicator).release("analytics", event);
+    }
+}
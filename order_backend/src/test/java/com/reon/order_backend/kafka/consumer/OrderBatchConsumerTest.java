@@ -0,0 +1,99 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.email.EmailMessage;
+import com.reon.order_backend.email.EmailService;
+import com.reon.order_backend.email.OrderEmailComposer;
+import com.reon.order_backend.exception.MailQueueFullException;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderBatchConsumerTest {
+    private final EmailService emailService = mock(EmailService.class);
+    private final OrderEmailComposer composer = mock(OrderEmailComposer.class);
+    private final EventDeduplicator deduplicator = mock(EventDeduplicator.class);
+    private final OrderSnapshotCache snapshotCache = mock(OrderSnapshotCache.class);
+    private final StatusNotificationCoalescer coalescer = mock(StatusNotificationCoalescer.class);
+    private final OrderSequenceTracker tracker = new OrderSequenceTracker(100);
+    private final OrderBatchConsumer consumer = new OrderBatchConsumer(emailService, composer,
+            mock(FailedEventRecorder.class), tracker, coalescer, deduplicator, snapshotCache);
+
+    @BeforeEach
+    void setUp() {
+        when(deduplicator.tryAcquire(eq(OrderStatusConsumer.DEDUP_NAME), any())).thenReturn(true);
+        when(snapshotCache.enrichAll(anyList())).thenReturn(new ArrayList<>());
+        when(composer.orderStatus(any())).thenAnswer(invocation ->
+                EmailMessage.builder().to(invocation.<OrderEventDTO>getArgument(0).getEmail()).build());
+        when(composer.orderPlaced(any())).thenAnswer(invocation ->
+                EmailMessage.builder().to(invocation.<OrderEventDTO>getArgument(0).getEmail()).build());
+    }
+
+    @Test
+    void recordsTheSequenceOfEveryEventOfAGroup() {
+        ObjectId orderId = new ObjectId();
+        OrderEventDTO confirmed = status(orderId, "jane@example.com", Order.Status.CONFIRMED, 1L);
+        OrderEventDTO processing = status(orderId, "jane@example.com", Order.Status.PROCESSING, 2L);
+
+        consumer.orderStatusBatchConsumer(new ArrayList<>(List.of(confirmed, processing)));
+
+        verify(composer).orderStatus(processing);
+        // a redelivered CONFIRMED is older than what the batch already covered
+        assertThat(tracker.isStale(status(orderId, "jane@example.com", Order.Status.CONFIRMED, 1L))).isTrue();
+    }
+
+    @Test
+    void releasesOnlyTheEventsOfEmailsThatWereNotQueued() {
+        OrderEventDTO first = placed("a@example.com");
+        OrderEventDTO second = placed("b@example.com");
+        OrderEventDTO third = placed("c@example.com");
+        doThrow(new MailQueueFullException("full", 1)).when(emailService).sendBatch(anyList());
+
+        assertThatThrownBy(() -> consumer.orderPlaceBatchConsumer(List.of(first, second, third)))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class,
+                        e -> assertThat(e.getIndex()).isEqualTo(1));
+
+        verify(deduplicator, never()).release(OrderStatusConsumer.DEDUP_NAME, first);
+        verify(deduplicator).release(OrderStatusConsumer.DEDUP_NAME, second);
+        verify(deduplicator).release(OrderStatusConsumer.DEDUP_NAME, third);
+    }
+
+    @Test
+    void failsAtTheRecordThatCouldNotBeRendered() {
+        OrderEventDTO first = placed("a@example.com");
+        OrderEventDTO broken = placed("b@example.com");
+        when(composer.orderPlaced(broken)).thenThrow(new IllegalStateException("Missing email template"));
+
+        assertThatThrownBy(() -> consumer.orderPlaceBatchConsumer(List.of(first, broken)))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class,
+                        e -> assertThat(e.getIndex()).isEqualTo(1));
+
+        verify(emailService).sendBatch(List.of(EmailMessage.builder().to("a@example.com").build()));
+        verify(deduplicator, never()).release(OrderStatusConsumer.DEDUP_NAME, first);
+        verify(deduplicator).release(OrderStatusConsumer.DEDUP_NAME, broken);
+    }
+
+    private static OrderEventDTO placed(String email) {
+        return OrderEventDTO.builder().orderId(new ObjectId()).email(email).status(Order.Status.PENDING).sequence(0L).build();
+    }
+
+    private static OrderEventDTO status(ObjectId orderId, String email, Order.Status status, long sequence) {
+        return OrderEventDTO.builder().orderId(orderId).userId(new ObjectId()).email(email).status(status).sequence(sequence).build();
+    }
+}
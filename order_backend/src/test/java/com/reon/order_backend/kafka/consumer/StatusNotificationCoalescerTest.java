@@ -0,0 +1,127 @@
+package com.reon.order_backend.kafka.consumer;
+
+import com.reon.order_backend.document.NotificationWindow;
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.email.EmailMessage;
+import com.reon.order_backend.email.EmailService;
+import com.reon.order_backend.email.OrderEmailComposer;
+import com.reon.order_backend.exception.MailQueueFullException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatusNotificationCoalescerTest {
+    private static final String EMAIL = "jane@example.com";
+
+    private final EmailService emailService = mock(EmailService.class);
+    private final OrderEmailComposer composer = mock(OrderEmailComposer.class);
+    private final EventDeduplicator deduplicator = mock(EventDeduplicator.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final StatusNotificationCoalescer coalescer = new StatusNotificationCoalescer(
+            emailService, composer, deduplicator, mongoTemplate, Duration.ofMinutes(1), false, 3);
+    private final ObjectId orderId = new ObjectId();
+
+    @AfterEach
+    void tearDown() {
+        coalescer.stop();
+    }
+
+    @Test
+    void writesTheEventToItsWindowBeforeReturning() {
+        OrderEventDTO event = event(Order.Status.CONFIRMED, 1L);
+
+        coalescer.submit(event);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(NotificationWindow.class));
+        assertThat(query.getValue().getQueryObject()).containsEntry("_id", orderId.toHexString());
+        assertThat(update.getValue().getUpdateObject().get("$push", Document.class)).containsKey("events");
+    }
+
+    @Test
+    void sendsOneSummaryWithEachOrderHistoryInSequenceOrder() {
+        OrderEventDTO confirmed = event(Order.Status.CONFIRMED, 1L);
+        OrderEventDTO processing = event(Order.Status.PROCESSING, 2L);
+        window(0, processing, confirmed);
+        EmailMessage summary = EmailMessage.builder().to(EMAIL).build();
+        when(composer.orderStatusSummary(eq(EMAIL), any())).thenReturn(summary);
+
+        coalescer.send(orderId.toHexString());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<List<OrderEventDTO>>> histories = ArgumentCaptor.forClass(Collection.class);
+        verify(composer).orderStatusSummary(eq(EMAIL), histories.capture());
+        assertThat(histories.getValue()).singleElement().isEqualTo(List.of(confirmed, processing));
+        verify(emailService).send(summary);
+    }
+
+    @Test
+    void putsTheWindowBackWhenTheSendFails() {
+        OrderEventDTO event = event(Order.Status.SHIPPED, 4L);
+        window(0, event);
+        EmailMessage email = EmailMessage.builder().to(EMAIL).build();
+        when(composer.orderStatus(event)).thenReturn(email);
+        doThrow(new MailQueueFullException("full")).when(emailService).send(email);
+
+        coalescer.send(orderId.toHexString());
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(NotificationWindow.class));
+        assertThat(update.getValue().getUpdateObject().get("$max", Document.class)).containsEntry("attempts", 1);
+        verify(deduplicator, never()).release(anyString(), any());
+    }
+
+    @Test
+    void releasesTheEventsWhenGivingUp() {
+        OrderEventDTO event = event(Order.Status.SHIPPED, 4L);
+        window(2, event);
+        when(composer.orderStatus(event)).thenThrow(new IllegalStateException("Missing email template"));
+
+        coalescer.send(orderId.toHexString());
+
+        verify(deduplicator).release(OrderStatusConsumer.DEDUP_NAME, event);
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(NotificationWindow.class));
+    }
+
+    @Test
+    void sendsNothingForAWindowAlreadyTakenElsewhere() {
+        coalescer.send(orderId.toHexString());
+
+        verify(emailService, never()).send(any());
+    }
+
+    private void window(int attempts, OrderEventDTO... events) {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(NotificationWindow.class))).thenReturn(
+                NotificationWindow.builder()
+                        .key(orderId.toHexString())
+                        .events(new ArrayList<>(List.of(events)))
+                        .attempts(attempts)
+                        .build());
+    }
+
+    private OrderEventDTO event(Order.Status status, Long sequence) {
+        return OrderEventDTO.builder().orderId(orderId).email(EMAIL).status(status).sequence(sequence).build();
+    }
+}
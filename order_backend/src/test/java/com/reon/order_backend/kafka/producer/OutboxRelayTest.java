@@ -0,0 +1,158 @@
+package com.reon.order_backend.kafka.producer;
+
+import com.reon.order_backend.document.OutboxEvent;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+    private static final String TOPIC = "order_update_event";
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(mongoTemplate, kafkaTemplate);
+        ReflectionTestUtils.setField(relay, "batchSize", 200);
+        ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "lease", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(relay, "maxAttempts", 10);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxEvent.class)).thenReturn(bulk);
+    }
+
+    @Test
+    void stopsAKeyAtItsFirstFailedRow() {
+        OutboxEvent first = row("a");
+        OutboxEvent second = row("a");
+        OutboxEvent other = row("b");
+        claims(List.of(first, second, other), List.of());
+        when(kafkaTemplate.send(TOPIC, "a", first.getPayload()))
+                .thenReturn(CompletableFuture.failedFuture(new KafkaException("broker down")));
+        when(kafkaTemplate.send(TOPIC, "b", other.getPayload())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(kafkaTemplate, never()).send(TOPIC, "a", second.getPayload());
+        List<Write> writes = bulkWrites();
+        assertThat(set(first.getId(), writes))
+                .containsEntry("status", OutboxEvent.Status.PENDING)
+                .containsEntry("attempts", 1);
+        assertThat(set(second.getId(), writes))
+                .containsEntry("status", OutboxEvent.Status.PENDING)
+                .doesNotContainKey("attempts");
+        assertThat(set(other.getId(), writes))
+                .containsEntry("status", OutboxEvent.Status.PUBLISHED);
+    }
+
+    @Test
+    void sendsTheNextRowOfAKeyOnlyAfterThePreviousOneWasAcknowledged() {
+        OutboxEvent first = row("a");
+        OutboxEvent second = row("a");
+        claims(List.of(first, second), List.of());
+        when(kafkaTemplate.send(eq(TOPIC), eq("a"), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        InOrder rounds = inOrder(kafkaTemplate);
+        rounds.verify(kafkaTemplate).send(TOPIC, "a", first.getPayload());
+        rounds.verify(kafkaTemplate).flush();
+        rounds.verify(kafkaTemplate).send(TOPIC, "a", second.getPayload());
+        rounds.verify(kafkaTemplate).flush();
+        assertThat(set(second.getId(), bulkWrites())).containsEntry("status", OutboxEvent.Status.PUBLISHED);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void leavesKeysWithAnOlderRowHeldElsewhere() {
+        OutboxEvent older = row("a");
+        OutboxEvent mine = row("a");
+        OutboxEvent other = row("b");
+        claims(List.of(mine, other), List.of(older));
+        when(kafkaTemplate.send(TOPIC, "b", other.getPayload())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(kafkaTemplate, never()).send(TOPIC, "a", mine.getPayload());
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).updateMulti(queries.capture(), any(Update.class), eq(OutboxEvent.class));
+        Document released = queries.getAllValues().get(1).getQueryObject();
+        assertThat((Collection<Object>) released.get("messageKey", Document.class).get("$in")).containsExactly("a");
+    }
+
+    // the candidate read, the read back of the claimed rows and the check for older rows of the same keys
+    private void claims(List<OutboxEvent> claimed, List<OutboxEvent> olderElsewhere) {
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class)))
+                .thenReturn(claimed, claimed, olderElsewhere, List.of());
+    }
+
+    private List<Write> bulkWrites() {
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, atLeast(0)).updateOne(queries.capture(), updates.capture());
+        verify(bulk, atLeast(0)).updateMulti(queries.capture(), updates.capture());
+        verify(bulk).execute();
+        List<Write> writes = new ArrayList<>();
+        for (int i = 0; i < queries.getAllValues().size(); i++) {
+            writes.add(new Write(queries.getAllValues().get(i).getQueryObject(), updates.getAllValues().get(i)));
+        }
+        return writes;
+    }
+
+    // the $set of the bulk write that covers the row
+    private static Document set(ObjectId id, List<Write> writes) {
+        return writes.stream()
+                .filter(write -> write.targets(id))
+                .map(write -> write.update().getUpdateObject().get("$set", Document.class))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No write for " + id));
+    }
+
+    private static OutboxEvent row(String key) {
+        return OutboxEvent.builder()
+                .id(new ObjectId())
+                .topic(TOPIC)
+                .messageKey(key)
+                .payload(OrderEventDTO.builder().orderId(new ObjectId()).build())
+                .status(OutboxEvent.Status.PUBLISHING)
+                .build();
+    }
+
+    private record Write(Document query, Update update) {
+        boolean targets(ObjectId id) {
+            Object filter = query.get("_id");
+            return id.equals(filter) || filter instanceof Document in && ((Collection<?>) in.get("$in")).contains(id);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.reon.order_backend.migration;
+
+import com.reon.order_backend.document.Order;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderFormatTest {
+
+    @Test
+    void movesV1FieldsToTheV2Layout() {
+        Document order = new Document(OrderFormat.LEGACY_ITEMS, List.of("book", "pen"))
+                .append(OrderFormat.LEGACY_AMOUNT, 19.99)
+                .append(OrderFormat.LEGACY_TIME_STAMPS, new Document("PENDING", new Date(1_000)).append("CONFIRMED", new Date(2_000)));
+
+        assertThat(OrderFormat.upgrade(order)).isTrue();
+
+        assertThat(order).doesNotContainKeys(OrderFormat.LEGACY_ITEMS, OrderFormat.LEGACY_AMOUNT, OrderFormat.LEGACY_TIME_STAMPS)
+                .containsEntry(Order.ITEMS_FIELD, List.of("book", "pen"))
+                .containsEntry(Order.AMOUNT_FIELD, 1999L)
+                .containsEntry(Order.SCHEMA_VERSION_FIELD, Order.SCHEMA_VERSION);
+        assertThat(order.getList(Order.STATUS_TIMES_FIELD, Long.class))
+                .containsExactly(1_000L, 2_000L);
+    }
+
+    @Test
+    void placesStatusTimesAtTheStatusOrdinal() {
+        Document order = new Document(OrderFormat.LEGACY_TIME_STAMPS, new Document(Order.Status.SHIPPED.name(), new Date(5_000)));
+
+        OrderFormat.upgrade(order);
+
+        List<Long> times = order.getList(Order.STATUS_TIMES_FIELD, Long.class);
+        assertThat(times).hasSize(Order.Status.SHIPPED.ordinal() + 1);
+        assertThat(times.get(Order.Status.SHIPPED.ordinal())).isEqualTo(5_000L);
+        assertThat(times.subList(0, Order.Status.SHIPPED.ordinal())).containsOnlyNulls();
+    }
+
+    @Test
+    void prefersTimesWrittenAfterTheV1Map() {
+        // a status change applied through $set on "ts.<ordinal>" before the order was migrated
+        Document order = new Document(OrderFormat.LEGACY_TIME_STAMPS, new Document("PENDING", new Date(1_000)).append("CONFIRMED", new Date(2_000)))
+                .append(Order.STATUS_TIMES_FIELD, new Document(String.valueOf(Order.Status.CONFIRMED.ordinal()), 3_000L));
+
+        OrderFormat.upgrade(order);
+
+        assertThat(order.getList(Order.STATUS_TIMES_FIELD, Long.class)).containsExactly(1_000L, 3_000L);
+    }
+
+    @Test
+    void keepsAMissingAmountAsNull() {
+        Document order = new Document(OrderFormat.LEGACY_AMOUNT, null);
+
+        assertThat(OrderFormat.upgrade(order)).isTrue();
+        assertThat(order).containsEntry(Order.AMOUNT_FIELD, null);
+    }
+
+    @Test
+    void leavesV2DocumentsUntouched() {
+        Document order = new Document(Order.ITEMS_FIELD, List.of("book"))
+                .append(Order.AMOUNT_FIELD, 500L)
+                .append(Order.STATUS_TIMES_FIELD, Arrays.asList(1_000L, null))
+                .append(Order.SCHEMA_VERSION_FIELD, Order.SCHEMA_VERSION);
+        Document before = new Document(order);
+
+        assertThat(OrderFormat.upgrade(order)).isFalse();
+        assertThat(order).isEqualTo(before);
+    }
+}
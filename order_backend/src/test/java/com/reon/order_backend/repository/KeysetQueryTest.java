@@ -0,0 +1,92 @@
+package com.reon.order_backend.repository;
+
+import com.reon.order_backend.dto.page.CursorPage;
+import com.reon.order_backend.exception.InvalidCursorException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetQueryTest {
+    private static final Criteria FILTER = Criteria.where("userId").is(new ObjectId());
+
+    private record Row(LocalDateTime createdOn, ObjectId id) {
+    }
+
+    @Test
+    void firstSliceOnlyAppliesTheFilter() {
+        Query query = KeysetQuery.slice(FILTER, null, 10);
+
+        assertThat(query.getQueryObject()).isEqualTo(FILTER.getCriteriaObject());
+        assertThat(query.getLimit()).isEqualTo(11);
+        assertThat(query.getSortObject()).isEqualTo(new Document("createdOn", -1).append("_id", -1));
+    }
+
+    @Test
+    void clampsThePageSize() {
+        assertThat(KeysetQuery.slice(FILTER, null, 0).getLimit()).isEqualTo(2);
+        assertThat(KeysetQuery.slice(FILTER, null, 1000).getLimit()).isEqualTo(KeysetQuery.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void pageWithoutExtraRowHasNoCursor() {
+        List<Row> rows = List.of(new Row(LocalDateTime.now(), new ObjectId()));
+
+        CursorPage<ObjectId> page = KeysetQuery.page(rows, 2, Row::createdOn, Row::id, Row::id);
+
+        assertThat(page.isHasNext()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(page.getContent()).hasSize(1);
+    }
+
+    @Test
+    void cursorResumesAfterTheLastRowOfThePage() {
+        LocalDateTime createdOn = LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_000_000);
+        Row last = new Row(createdOn, new ObjectId());
+        List<Row> rows = List.of(new Row(createdOn.plusMinutes(1), new ObjectId()), last, new Row(createdOn, new ObjectId()));
+
+        CursorPage<ObjectId> page = KeysetQuery.page(rows, 2, Row::createdOn, Row::id, Row::id);
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(page.getContent()).hasSize(2).endsWith(last.id());
+
+        List<Document> branches = keyset(KeysetQuery.slice(FILTER, page.getNextCursor(), 2)).getList("$or", Document.class);
+        assertThat(branches).containsExactly(
+                new Document("createdOn", new Document("$lt", createdOn)),
+                new Document("$and", List.of(new Document("createdOn", createdOn), new Document("_id", new Document("$lt", last.id())))),
+                new Document("createdOn", null));
+    }
+
+    @Test
+    void cursorFromARowWithoutCreatedOnStaysAmongThoseRows() {
+        Row last = new Row(null, new ObjectId());
+        List<Row> rows = List.of(last, new Row(null, new ObjectId()));
+
+        CursorPage<ObjectId> page = KeysetQuery.page(rows, 1, Row::createdOn, Row::id, Row::id);
+
+        List<Document> conditions = keyset(KeysetQuery.slice(FILTER, page.getNextCursor(), 1)).getList("$and", Document.class);
+        assertThat(conditions).containsExactly(
+                new Document("createdOn", null),
+                new Document("_id", new Document("$lt", last.id())));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThatThrownBy(() -> KeysetQuery.slice(FILTER, "not a cursor", 10)).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> KeysetQuery.slice(FILTER, "bm8tc2VwYXJhdG9y", 10)).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> KeysetQuery.slice(FILTER, "eHx5", 10)).isInstanceOf(InvalidCursorException.class);
+    }
+
+    // the keyset part of a slice, next to the filter in the top level $and
+    private static Document keyset(Query query) {
+        List<Document> parts = query.getQueryObject().getList("$and", Document.class);
+        assertThat(parts).hasSize(2).first().isEqualTo(FILTER.getCriteriaObject());
+        return parts.get(1);
+    }
+}
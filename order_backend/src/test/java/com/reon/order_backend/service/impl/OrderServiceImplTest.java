@@ -0,0 +1,126 @@
+package com.reon.order_backend.service.impl;
+
+import com.reon.order_backend.cache.UserCache;
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.User;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.dto.order.BulkStatusResponse;
+import com.reon.order_backend.dto.order.StatusTransition;
+import com.reon.order_backend.dto.order.StatusTransitionResult;
+import com.reon.order_backend.kafka.KafkaTopicConfig;
+import com.reon.order_backend.kafka.producer.OrderEventPublisher;
+import com.reon.order_backend.repository.OrderRepository;
+import com.reon.order_backend.repository.UserRepository;
+import jakarta.validation.Validation;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderServiceImplTest {
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final OrderEventPublisher orderEventPublisher = mock(OrderEventPublisher.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final User user = User.builder().id(new ObjectId()).email("jane@example.com").build();
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderServiceImpl(mock(OrderRepository.class), mock(UserRepository.class), orderEventPublisher,
+                mock(UserCache.class), mongoTemplate, Validation.buildDefaultValidatorFactory().getValidator(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class)).thenReturn(bulk);
+    }
+
+    @Test
+    void decidesEachOutcomeFromTheOrdersReadAfterOneBulkWrite() {
+        Order applied = order(Order.Status.PENDING, 0L);
+        Order changed = order(Order.Status.PENDING, 3L);
+        when(mongoTemplate.find(any(Query.class), eq(Order.class))).thenReturn(
+                List.of(applied, changed),
+                List.of(order(applied.getId(), Order.Status.CONFIRMED, 1L), order(changed.getId(), Order.Status.CANCELLED, 4L)));
+
+        BulkStatusResponse response = orderService.updateOrders(List.of(
+                transition(applied.getId().toHexString(), Order.Status.CONFIRMED),
+                transition(changed.getId().toHexString(), Order.Status.CONFIRMED)), user);
+
+        verify(bulk, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(bulk).execute();
+        assertThat(response.getResults()).extracting(StatusTransitionResult::getOutcome)
+                .containsExactly(StatusTransitionResult.Outcome.UPDATED, StatusTransitionResult.Outcome.CONFLICT);
+        assertThat(response.getUpdated()).isEqualTo(1);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OrderEventDTO>> events = ArgumentCaptor.forClass(List.class);
+        verify(orderEventPublisher).publishAll(eq(KafkaTopicConfig.ORDER_UPDATE_EVENT), events.capture());
+        assertThat(events.getValue()).singleElement().satisfies(event -> {
+            assertThat(event.getOrderId()).isEqualTo(applied.getId());
+            assertThat(event.getPreviousStatus()).isEqualTo(Order.Status.PENDING);
+            assertThat(event.getSequence()).isEqualTo(1L);
+        });
+    }
+
+    @Test
+    void reportsMalformedTransitionsWithoutFailingTheOthers() {
+        Order order = order(Order.Status.PENDING, 0L);
+        when(mongoTemplate.find(any(Query.class), eq(Order.class))).thenReturn(
+                List.of(order), List.of(order(order.getId(), Order.Status.CONFIRMED, 1L)));
+
+        BulkStatusResponse response = orderService.updateOrders(List.of(
+                transition(" ", Order.Status.CONFIRMED),
+                transition("not-an-id", Order.Status.CONFIRMED),
+                transition(new ObjectId().toHexString(), null),
+                transition(order.getId().toHexString(), Order.Status.CONFIRMED)), user);
+
+        assertThat(response.getResults()).extracting(StatusTransitionResult::getOutcome).containsExactly(
+                StatusTransitionResult.Outcome.INVALID,
+                StatusTransitionResult.Outcome.INVALID,
+                StatusTransitionResult.Outcome.INVALID,
+                StatusTransitionResult.Outcome.UPDATED);
+        assertThat(response.getResults().get(1).getMessage()).isEqualTo("Not a valid order id");
+    }
+
+    @Test
+    void rejectsTransitionsWithoutWritingWhenNoneIsAllowed() {
+        Order delivered = order(Order.Status.DELIVERED, 6L);
+        when(mongoTemplate.find(any(Query.class), eq(Order.class))).thenReturn(List.of(delivered));
+
+        BulkStatusResponse response = orderService.updateOrders(List.of(
+                transition(delivered.getId().toHexString(), Order.Status.CANCELLED),
+                transition(new ObjectId().toHexString(), Order.Status.CONFIRMED)), user);
+
+        assertThat(response.getResults()).extracting(StatusTransitionResult::getOutcome).containsExactly(
+                StatusTransitionResult.Outcome.REJECTED, StatusTransitionResult.Outcome.NOT_FOUND);
+        verify(bulk, never()).execute();
+        verify(orderEventPublisher, never()).publishAll(any(), any());
+    }
+
+    private Order order(Order.Status status, Long sequence) {
+        return order(new ObjectId(), status, sequence);
+    }
+
+    private Order order(ObjectId id, Order.Status status, Long sequence) {
+        return Order.builder().id(id).userId(user.getId()).status(status).eventSequence(sequence).build();
+    }
+
+    private static StatusTransition transition(String orderId, Order.Status status) {
+        return StatusTransition.builder().orderId(orderId).status(status).build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.reon.order_backend.service.impl;
+
+import com.reon.order_backend.document.Order;
+import com.reon.order_backend.document.OrderSummary;
+import com.reon.order_backend.dto.kafka.OrderEventDTO;
+import com.reon.order_backend.mapper.OrderSummaryMapper;
+import com.reon.order_backend.repository.OrderSummaryRepository;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderSummaryServiceImplTest {
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final OrderSummaryServiceImpl service = new OrderSummaryServiceImpl(mock(OrderSummaryRepository.class),
+            new OrderSummaryMapper(), mongoTemplate, 10, 100, Duration.ofSeconds(30), Duration.ofDays(7));
+    private final ObjectId userId = new ObjectId();
+
+    @Test
+    void recordsWhenACancelledOrderWasTakenOff() {
+        OrderEventDTO cancel = event(Order.Status.CANCELLED, 3L);
+        returns(summary(Map.of()));
+
+        service.applyStatus(cancel);
+
+        Document update = updates(1).get(0).getUpdateObject();
+        String orderId = cancel.getOrderId().toHexString();
+        assertThat(update.get("$set", Document.class))
+                .containsEntry("appliedSequences." + orderId, 3L)
+                .containsKey("cancelledOn." + orderId);
+        assertThat(update.get("$pull", Document.class)).containsKey("recentOrders");
+    }
+
+    @Test
+    void dropsWatermarksOfOrdersCancelledBeforeTheRetention() {
+        String expired = new ObjectId().toHexString();
+        String recent = new ObjectId().toHexString();
+        returns(summary(Map.of(
+                expired, LocalDateTime.now().minusDays(8),
+                recent, LocalDateTime.now().minusDays(1))));
+
+        service.applyStatus(event(Order.Status.SHIPPED, 2L));
+
+        Document prune = updates(2).get(1).getUpdateObject();
+        assertThat(prune.get("$unset", Document.class).keySet())
+                .containsExactlyInAnyOrder("appliedSequences." + expired, "cancelledOn." + expired);
+    }
+
+    @Test
+    void leavesTheSummaryAloneWhileNoCancelledWatermarkExpired() {
+        returns(summary(Map.of(new ObjectId().toHexString(), LocalDateTime.now().minusHours(1))));
+
+        service.applyStatus(event(Order.Status.SHIPPED, 2L));
+
+        updates(1);
+    }
+
+    @Test
+    void skipsAnEventAtOrBelowTheWatermarkWithoutRebuilding() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(OrderSummary.class))).thenReturn(null);
+        when(mongoTemplate.exists(any(Query.class), eq(OrderSummary.class))).thenReturn(true);
+
+        service.applyStatus(event(Order.Status.SHIPPED, 2L));
+
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(Order.class));
+        verify(mongoTemplate, never()).insert(any(OrderSummary.class));
+    }
+
+    private void returns(OrderSummary summary) {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(OrderSummary.class))).thenReturn(summary);
+    }
+
+    private List<Update> updates(int count) {
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(count)).findAndModify(any(Query.class), updates.capture(),
+                any(FindAndModifyOptions.class), eq(OrderSummary.class));
+        return updates.getAllValues();
+    }
+
+    private OrderSummary summary(Map<String, LocalDateTime> cancelledOn) {
+        return OrderSummary.builder()
+                .userId(userId)
+                .cancelledOn(new HashMap<>(cancelledOn))
+                .build();
+    }
+
+    private OrderEventDTO event(Order.Status status, Long sequence) {
+        return OrderEventDTO.builder()
+                .orderId(new ObjectId())
+                .userId(userId)
+                .status(status)
+                .previousStatus(Order.Status.PENDING)
+                .sequence(sequence)
+                .amount(10.0)
+                .build();
+    }
+}